@@ -0,0 +1,81 @@
+/*
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.boundary;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+
+/**
+ * Reads index values straight from the primitive storage array of an {@link IntType},
+ * {@link UnsignedShortType} or {@link UnsignedByteType} image or cell.
+ */
+final class IndexStorage
+{
+	private int[] ints;
+	private short[] shorts;
+	private byte[] bytes;
+
+	/**
+	 * @return whether values of {@code type} stored in {@code access} can be read by this class
+	 */
+	static boolean isSupported( final Object type, final Object access )
+	{
+		if ( !( access instanceof ArrayDataAccess ) )
+			return false;
+		final Object storage = ( ( ArrayDataAccess< ? > ) access ).getCurrentStorageArray();
+		return ( type instanceof IntType && storage instanceof int[] )
+				|| ( type instanceof UnsignedShortType && storage instanceof short[] )
+				|| ( type instanceof UnsignedByteType && storage instanceof byte[] );
+	}
+
+	/**
+	 * Reads from the storage array of {@code access} from now on.
+	 *
+	 * @return false if the storage of {@code access} is not a primitive array
+	 */
+	boolean set( final Object access )
+	{
+		final Object storage = access instanceof ArrayDataAccess ? ( ( ArrayDataAccess< ? > ) access ).getCurrentStorageArray() : null;
+		ints = storage instanceof int[] ? ( int[] ) storage : null;
+		shorts = storage instanceof short[] ? ( short[] ) storage : null;
+		bytes = storage instanceof byte[] ? ( byte[] ) storage : null;
+		return ints != null || shorts != null || bytes != null;
+	}
+
+	int get( final int offset )
+	{
+		if ( ints != null )
+			return ints[ offset ];
+		if ( shorts != null )
+			return shorts[ offset ] & 0xffff;
+		return bytes[ offset ] & 0xff;
+	}
+}
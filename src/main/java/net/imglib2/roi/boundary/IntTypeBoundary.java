@@ -32,6 +32,8 @@ import net.imglib2.AbstractWrappedInterval;
 import net.imglib2.Interval;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.cell.AbstractCellImg;
 import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.integer.IntType;
 
@@ -41,14 +43,24 @@ public final class IntTypeBoundary< T extends IntegerType<T>>
 
 	int timeDim;
 
+	// the storage is checked once, a new random access is created for each frame and thread
+	private final boolean array;
+	private final boolean cells;
+
 	public IntTypeBoundary(final RandomAccessibleInterval<T> img, int timeDim)
 	{
 		super( img );
 		this.timeDim = timeDim;
+		array = IntTypeBoundaryArrayRandomAccess4.isSupported( img );
+		cells = !array && IntTypeBoundaryCellRandomAccess4.isSupported( img );
 	}
 
 	@Override
 	public RandomAccess<IntType> randomAccess() {
+		if ( array )
+			return new IntTypeBoundaryArrayRandomAccess4( ( ArrayImg< ?, ? > ) sourceInterval, timeDim );
+		if ( cells )
+			return new IntTypeBoundaryCellRandomAccess4<>( ( AbstractCellImg< T, ?, ?, ? > ) sourceInterval, timeDim );
 		return new IntTypeBoundaryRandomAccess4< T >( sourceInterval, timeDim );
 	}
 
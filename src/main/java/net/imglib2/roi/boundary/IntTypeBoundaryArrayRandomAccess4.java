@@ -0,0 +1,129 @@
+/*
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.boundary;
+
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+
+/**
+ * Same as {@link IntTypeBoundaryRandomAccess4}, but reading the index and its neighbors
+ * straight from the backing array of an {@link IntType}, {@link UnsignedShortType} or {@link UnsignedByteType} {@link ArrayImg}.
+ * Positions outside of the image are not a boundary.
+ */
+public final class IntTypeBoundaryArrayRandomAccess4 extends Point implements RandomAccess<IntType>
+{
+	private final IndexStorage storage;
+	private final long[] dimensions;
+	private final int[] steps;
+	private final int timeDim;
+	private final IntType type;
+
+	public IntTypeBoundaryArrayRandomAccess4(final ArrayImg<?, ?> img, int timeDim)
+	{
+		super( img.numDimensions() );
+		storage = new IndexStorage();
+		storage.set( img.update( null ) );
+		dimensions = img.dimensionsAsLongArray();
+		steps = new int[ n ];
+		int step = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			steps[ d ] = step;
+			step *= ( int ) dimensions[ d ];
+		}
+		this.timeDim = timeDim;
+		type = new IntType();
+	}
+
+	private IntTypeBoundaryArrayRandomAccess4(final IntTypeBoundaryArrayRandomAccess4 ba)
+	{
+		super( ba );
+		this.storage = ba.storage;
+		this.dimensions = ba.dimensions;
+		this.steps = ba.steps;
+		this.timeDim = ba.timeDim;
+		this.type = ba.type.copy();
+	}
+
+	/**
+	 * @return whether the image is an {@link ArrayImg} this access can read directly
+	 */
+	public static boolean isSupported(final RandomAccessibleInterval<?> img)
+	{
+		if ( !( img instanceof ArrayImg ) )
+			return false;
+		ArrayImg<?, ?> arrayImg = ( ArrayImg<?, ?> ) img;
+		return IndexStorage.isSupported( arrayImg.firstElement(), arrayImg.update( null ) );
+	}
+
+	@Override
+	public IntType get()
+	{
+		int offset = 0;
+		for ( int d = 0; d < n; ++d )
+		{
+			final long p = position[ d ];
+			if ( p < 0 || p >= dimensions[ d ] )
+			{
+				type.setZero();
+				return type;
+			}
+			offset += ( int ) p * steps[ d ];
+		}
+		final int center = storage.get( offset );
+		if ( center > 0 )
+		{
+			for ( int d = 0; d < n; ++d )
+			{
+				if ( d == timeDim )
+					continue;
+				final long p = position[ d ];
+				if ( ( p > 0 && storage.get( offset - steps[ d ] ) != center )
+						|| ( p < dimensions[ d ] - 1 && storage.get( offset + steps[ d ] ) != center ) )
+				{
+					type.set( center );
+					return type;
+				}
+			}
+		}
+		type.setZero();
+		return type;
+	}
+
+	@Override
+	public IntTypeBoundaryArrayRandomAccess4 copy()
+	{
+		return new IntTypeBoundaryArrayRandomAccess4( this );
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.boundary;
+
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
+
+/**
+ * Same as {@link IntTypeBoundaryArrayRandomAccess4}, but for cell images. The index and its neighbors
+ * are read from the storage array of the current cell, neighbors in other cells and cells without
+ * a primitive storage array are read through a {@link RandomAccess} of the image.
+ * Positions outside of the image are not a boundary.
+ */
+public final class IntTypeBoundaryCellRandomAccess4< T extends IntegerType< T > > extends Point implements RandomAccess< IntType >
+{
+	private final AbstractCellImg< T, ?, ?, ? > img;
+	private final CellGrid grid;
+	private final RandomAccess< ? extends Cell< ? > > cells;
+	private final RandomAccess< T > neighbors;
+	private final IndexStorage storage;
+	private final long[] dimensions;
+	private final long[] cellPosition;
+	private final long[] cellMin;
+	private final long[] cellMax;
+	private final int[] steps;
+	private boolean cellLoaded;
+	private boolean cellReadable;
+	private final int timeDim;
+	private final IntType type;
+
+	public IntTypeBoundaryCellRandomAccess4( final AbstractCellImg< T, ?, ?, ? > img, int timeDim )
+	{
+		super( img.numDimensions() );
+		this.img = img;
+		grid = img.getCellGrid();
+		cells = img.getCells().randomAccess();
+		neighbors = img.randomAccess();
+		storage = new IndexStorage();
+		dimensions = img.dimensionsAsLongArray();
+		cellPosition = new long[ n ];
+		cellMin = new long[ n ];
+		cellMax = new long[ n ];
+		steps = new int[ n ];
+		this.timeDim = timeDim;
+		type = new IntType();
+	}
+
+	private IntTypeBoundaryCellRandomAccess4( final IntTypeBoundaryCellRandomAccess4< T > ba )
+	{
+		this( ba.img, ba.timeDim );
+		setPosition( ba );
+	}
+
+	/**
+	 * @return whether the image is a cell image of a type this access can read directly
+	 */
+	public static boolean isSupported( final RandomAccessibleInterval< ? > img )
+	{
+		if ( !( img instanceof AbstractCellImg ) )
+			return false;
+		AbstractCellImg< ?, ?, ?, ? > cellImg = ( AbstractCellImg< ?, ?, ?, ? > ) img;
+		Cell< ? > cell = cellImg.getCells().firstElement();
+		return IndexStorage.isSupported( cellImg.firstElement(), cell.getData() );
+	}
+
+	@Override
+	public IntType get()
+	{
+		for ( int d = 0; d < n; ++d )
+		{
+			if ( position[ d ] < 0 || position[ d ] >= dimensions[ d ] )
+			{
+				type.setZero();
+				return type;
+			}
+		}
+		updateCell();
+		int offset = 0;
+		if ( cellReadable )
+		{
+			for ( int d = 0; d < n; ++d )
+				offset += ( int ) ( position[ d ] - cellMin[ d ] ) * steps[ d ];
+		}
+		final int center = cellReadable ? storage.get( offset ) : read( -1, 0 );
+		if ( center > 0 )
+		{
+			for ( int d = 0; d < n; ++d )
+			{
+				if ( d == timeDim )
+					continue;
+				final long p = position[ d ];
+				if ( p > 0 )
+				{
+					final int previous = cellReadable && p > cellMin[ d ] ? storage.get( offset - steps[ d ] ) : read( d, -1 );
+					if ( previous != center )
+					{
+						type.set( center );
+						return type;
+					}
+				}
+				if ( p < dimensions[ d ] - 1 )
+				{
+					final int next = cellReadable && p < cellMax[ d ] ? storage.get( offset + steps[ d ] ) : read( d, 1 );
+					if ( next != center )
+					{
+						type.set( center );
+						return type;
+					}
+				}
+			}
+		}
+		type.setZero();
+		return type;
+	}
+
+	private void updateCell()
+	{
+		grid.getCellPosition( position, cellPosition );
+		if ( cellLoaded )
+		{
+			boolean sameCell = true;
+			for ( int d = 0; d < n && sameCell; ++d )
+				sameCell = cells.getLongPosition( d ) == cellPosition[ d ];
+			if ( sameCell )
+				return;
+		}
+		cells.setPosition( cellPosition );
+		final Cell< ? > cell = cells.get();
+		cellReadable = storage.set( cell.getData() );
+		int step = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			cellMin[ d ] = cell.min( d );
+			cellMax[ d ] = cell.max( d );
+			steps[ d ] = step;
+			step *= ( int ) cell.dimension( d );
+		}
+		cellLoaded = true;
+	}
+
+	private int read( final int d, final int delta )
+	{
+		neighbors.setPosition( this );
+		if ( d >= 0 )
+			neighbors.move( delta, d );
+		return neighbors.get().getInteger();
+	}
+
+	@Override
+	public IntTypeBoundaryCellRandomAccess4< T > copy()
+	{
+		return new IntTypeBoundaryCellRandomAccess4<>( this );
+	}
+}
@@ -40,6 +40,8 @@ import net.imglib2.view.Views;
  * {@link RandomAccessibleInterval}. It returns the value of pixels that have
  * pixel with different values in their 4-neighborhood (or n-dimensional equivalent)
  * and returns 0 for all other pixels.
+ * Neighbors outside of the source interval are skipped, which gives the same result
+ * as comparing against a mirrored (single) extension of the source.
  *
  * @author Tobias Pietzsch
  * @author Deborah Schmidt
@@ -49,14 +51,21 @@ public final class IntTypeBoundaryRandomAccess4< T extends IntegerType<T>> exten
 	private final int n;
 
 	private final IntType type;
-	private int timeDim;
+	private final int timeDim;
+	private final long[] min;
+	private final long[] max;
 
 	public IntTypeBoundaryRandomAccess4(final RandomAccessibleInterval<T> sourceInterval, int timeDim)
 	{
-		super(Views.extendMirrorSingle(sourceInterval).randomAccess() );
+		// the extension is only used when accessing positions outside of the source interval
+		super(Views.extendMirrorSingle(sourceInterval).randomAccess(sourceInterval) );
 		n = sourceInterval.numDimensions();
 		type = new IntType();
 		this.timeDim = timeDim;
+		min = new long[n];
+		max = new long[n];
+		sourceInterval.min(min);
+		sourceInterval.max(max);
 	}
 
 	private IntTypeBoundaryRandomAccess4(final IntTypeBoundaryRandomAccess4< T > ba )
@@ -64,35 +73,45 @@ public final class IntTypeBoundaryRandomAccess4< T extends IntegerType<T>> exten
 		super( ba.source.copyRandomAccess() );
 		this.n = ba.n;
 		this.type = ba.type.copy();
+		this.timeDim = ba.timeDim;
+		this.min = ba.min;
+		this.max = ba.max;
 	}
 
 	@Override
 	public IntType get()
 	{
-		T center = source.get().copy();
-		if ( center.getInteger() > 0 )
+		final int center = source.get().getInteger();
+		if ( center > 0 )
 		{
 			for ( int d = 0; d < n; ++d )
 			{
 				if(d == timeDim) {
 					continue;
 				}
-				bck( d );
-				if ( !source.get().equals(center) )
+				final long position = source.getLongPosition( d );
+				if ( position > min[ d ] )
 				{
-					fwd( d );
-					type.set( center.getInteger() );
-					return type;
+					source.bck( d );
+					final int previous = source.get().getInteger();
+					source.fwd( d );
+					if ( previous != center )
+					{
+						type.set( center );
+						return type;
+					}
 				}
-				fwd( d );
-				fwd( d );
-				if ( !source.get().equals(center) )
+				if ( position < max[ d ] )
 				{
-					bck( d );
-					type.set( center.getInteger() );
-					return type;
+					source.fwd( d );
+					final int next = source.get().getInteger();
+					source.bck( d );
+					if ( next != center )
+					{
+						type.set( center );
+						return type;
+					}
 				}
-				bck( d );
 			}
 		}
 		type.setZero();
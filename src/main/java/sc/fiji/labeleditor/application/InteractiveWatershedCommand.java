@@ -31,7 +31,6 @@ package sc.fiji.labeleditor.application;
 import net.imagej.ops.OpService;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.roi.labeling.ImgLabeling;
-import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.view.Views;
 import org.scijava.Cancelable;
@@ -43,10 +42,9 @@ import org.scijava.ui.UIService;
 import org.scijava.widget.NumberWidget;
 import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.colors.LabelEditorPalette;
 import sc.fiji.labeleditor.plugin.behaviours.modification.SplitLabels;
 
-import java.util.Random;
-
 @Plugin(type= Command.class, name="Interactive Watershed Labeling Splitter")
 public class InteractiveWatershedCommand<L> implements Command, Cancelable {
 
@@ -89,11 +87,7 @@ public class InteractiveWatershedCommand<L> implements Command, Cancelable {
 			}
 			L onlyLabel = output.labeling().getMapping().getLabels().iterator().next();
 			SplitLabels.split(onlyLabel, output.labeling(), output.getData(), sigma, ops);
-			Random random = new Random();
-			output.labeling().getMapping().getLabels().forEach(label -> {
-				output.tagging().addTagToLabel(label, label);
-				output.colors().getFaceColor(label).set(randomColor(random));
-			});
+			output.colors().setPalette(LabelEditorPalette.goldenRatio(output.labeling().getMapping().getLabels().size(), 200));
 		}
 	}
 
@@ -102,10 +96,6 @@ public class InteractiveWatershedCommand<L> implements Command, Cancelable {
 
 	}
 
-	private int randomColor(Random random) {
-		return ARGBType.rgba(random.nextInt(155)+100, random.nextInt(155) + 100, random.nextInt(255) + 100, 200);
-	}
-
 	@Override
 	public boolean isCanceled() {
 		return canceled;
@@ -64,6 +64,9 @@ public class LabelEditorCommand<I extends IntegerType<I>> implements Command {
 	@Parameter(label = "Labeling channels (comma separated indices)")
 	private String labelingChannels = "";
 
+	@Parameter(label = "Use label map without import (labels 1 to n)")
+	private boolean wrap = false;
+
 //	@Parameter(visibility = ItemVisibility.MESSAGE)
 //	private String line2 = "";
 //
@@ -85,7 +88,7 @@ public class LabelEditorCommand<I extends IntegerType<I>> implements Command {
 		int[] raws = asIntArray(rawChannels.trim());
 		RandomAccessibleInterval<I> labelRAI = makeStack(labelings);
 		List<RandomAccessibleInterval<? extends RealType<?>>> rawList = makeList(raws);
-		output = new LabelMap<>(labelRAI, rawList, hasChannels);
+		output = new LabelMap<>(labelRAI, rawList, hasChannels, wrap);
 	}
 
 	private int[] asIntArray(String channels) {
@@ -43,11 +43,20 @@ public class LabelMap<I extends IntegerType<I>> implements RandomAccessibleInter
 	private final RandomAccessibleInterval<I> ref;
 	private final boolean hasChannels;
 	private final List<RandomAccessibleInterval<? extends RealType<?>>> raws;
+	private final boolean wrap;
 
 	public LabelMap(RandomAccessibleInterval<I> labels, List<RandomAccessibleInterval<? extends RealType<?>>> raws, boolean hasChannels) {
+		this(labels, raws, hasChannels, false);
+	}
+
+	/**
+	 * @param wrap whether the labels should be used as index image of the labeling instead of being imported
+	 */
+	public LabelMap(RandomAccessibleInterval<I> labels, List<RandomAccessibleInterval<? extends RealType<?>>> raws, boolean hasChannels, boolean wrap) {
 		this.hasChannels = hasChannels;
 		this.ref = labels;
 		this.raws = raws;
+		this.wrap = wrap;
 	}
 
 	@Override
@@ -113,6 +122,10 @@ public class LabelMap<I extends IntegerType<I>> implements RandomAccessibleInter
 		return raws;
 	}
 
+	public boolean isWrapped() {
+		return wrap;
+	}
+
 	@Override
 	public double realMin(int d) {
 		return ref.realMin(d);
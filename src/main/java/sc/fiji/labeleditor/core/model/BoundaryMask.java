@@ -0,0 +1,220 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.cache.img.CachedCellImg;
+import net.imglib2.cache.img.ReadOnlyCachedCellImgFactory;
+import net.imglib2.cache.img.ReadOnlyCachedCellImgOptions;
+import net.imglib2.cache.img.SingleCellArrayImg;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.LongStream;
+
+/**
+ * Marks all pixels of a labeling which have a pixel with a different label set index in their 4-neighborhood
+ * (or n-dimensional equivalent) within the checked dimensions. The mask is computed in source space, cell by cell
+ * on first access, and kept as a cached cell image using the cell grid of the index image if it has one.
+ * After editing the labeling, only the cells overlapping the changed interval have to be recomputed.
+ * The index image with flagged boundaries is cached the same way, so viewers can load it progressively.
+ */
+public class BoundaryMask {
+
+	private static final int BOUNDARY_FLAG = 0x80000000;
+
+	private final RandomAccessibleInterval<? extends IntegerType<?>> indexImg;
+	private final int[] checkedDimensions;
+	private final CachedCellImg<BitType, ?> mask;
+	private final CachedCellImg<IntType, ?> flagged;
+
+	/**
+	 * @param checkedDimensions the dimensions in which neighbors are compared,
+	 *                          e.g. {@code 0, 1} to get the boundaries within each XY plane of a 3D or time series labeling
+	 */
+	public BoundaryMask(RandomAccessibleInterval<? extends IntegerType<?>> indexImg, int... checkedDimensions) {
+		this.indexImg = indexImg;
+		this.checkedDimensions = Arrays.stream(checkedDimensions).filter(d -> d < indexImg.numDimensions()).toArray();
+		ReadOnlyCachedCellImgOptions options = ReadOnlyCachedCellImgOptions.options()
+				.cellDimensions(IndexCache.getCellDimensions(indexImg))
+				.volatileAccesses(true);
+		long[] dimensions = Intervals.dimensionsAsLongArray(indexImg);
+		mask = new ReadOnlyCachedCellImgFactory(options).create(dimensions, new BitType(), this::load);
+		flagged = new ReadOnlyCachedCellImgFactory(options).create(dimensions, new IntType(), this::loadFlagged);
+	}
+
+	private void load(SingleCellArrayImg<BitType, ?> cell) {
+		RandomAccess<? extends IntegerType<?>> ra = indexImg.randomAccess();
+		long[] offset = Intervals.minAsLongArray(indexImg);
+		long[] max = Intervals.maxAsLongArray(indexImg);
+		Cursor<BitType> cursor = cell.localizingCursor();
+		while(cursor.hasNext()) {
+			cursor.fwd();
+			for (int d = 0; d < offset.length; d++) {
+				ra.setPosition(cursor.getLongPosition(d) + offset[d], d);
+			}
+			cursor.get().set(isBoundary(ra, max));
+		}
+	}
+
+	private void loadFlagged(SingleCellArrayImg<IntType, ?> cell) {
+		RandomAccess<? extends IntegerType<?>> ra = indexImg.randomAccess();
+		RandomAccess<BitType> maskRa = mask.randomAccess();
+		long[] offset = Intervals.minAsLongArray(indexImg);
+		Cursor<IntType> cursor = cell.localizingCursor();
+		while(cursor.hasNext()) {
+			cursor.fwd();
+			maskRa.setPosition(cursor);
+			for (int d = 0; d < offset.length; d++) {
+				ra.setPosition(cursor.getLongPosition(d) + offset[d], d);
+			}
+			int index = ra.get().getInteger();
+			cursor.get().set(maskRa.get().get() ? index | BOUNDARY_FLAG : index);
+		}
+	}
+
+	private boolean isBoundary(RandomAccess<? extends IntegerType<?>> ra, long[] max) {
+		final int center = ra.get().getInteger();
+		if(center <= 0) return false;
+		for (int d : checkedDimensions) {
+			long position = ra.getLongPosition(d);
+			if(position > indexImg.min(d)) {
+				ra.bck(d);
+				int previous = ra.get().getInteger();
+				ra.fwd(d);
+				if(previous != center) return true;
+			}
+			if(position < max[d]) {
+				ra.fwd(d);
+				int next = ra.get().getInteger();
+				ra.bck(d);
+				if(next != center) return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Computes all cells of the mask and of the flagged index image which are not cached yet, in parallel.
+	 */
+	public void precompute() {
+		CellGrid grid = mask.getCellGrid();
+		LongStream.range(0, Intervals.numElements(grid.getGridDimensions())).parallel().forEach(index -> {
+			getCell(mask, index);
+			getCell(flagged, index);
+		});
+	}
+
+	private static void getCell(CachedCellImg<?, ?> img, long index) {
+		try {
+			img.getCache().get(index);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Drops the cells which might be affected by changes of the index image within {@code changed},
+	 * they are recomputed on next access.
+	 * @param changed the changed interval in coordinates of the index image, or null to drop all cells
+	 */
+	public void invalidate(Interval changed) {
+		if(changed == null) {
+			mask.getCache().invalidateAll();
+			flagged.getCache().invalidateAll();
+			return;
+		}
+		CellGrid grid = mask.getCellGrid();
+		int n = grid.numDimensions();
+		long[] gridDimensions = grid.getGridDimensions();
+		long[] gridMin = new long[n];
+		long[] gridMax = new long[n];
+		for (int d = 0; d < n; d++) {
+			// neighbors of changed pixels might change their boundary state as well
+			long min = Math.max(0, changed.min(d) - indexImg.min(d) - 1);
+			long max = Math.min(indexImg.dimension(d) - 1, changed.max(d) - indexImg.min(d) + 1);
+			if(min > max) return;
+			gridMin[d] = min / grid.cellDimension(d);
+			gridMax[d] = max / grid.cellDimension(d);
+		}
+		long[] position = gridMin.clone();
+		while(true) {
+			long index = IntervalIndexer.positionToIndex(position, gridDimensions);
+			mask.getCache().invalidate(index);
+			flagged.getCache().invalidate(index);
+			int d = 0;
+			while(d < n && position[d] == gridMax[d]) {
+				position[d] = gridMin[d];
+				d++;
+			}
+			if(d == n) return;
+			position[d]++;
+		}
+	}
+
+	/**
+	 * @return the mask with the same dimensions as the index image, but zero min
+	 */
+	public RandomAccessibleInterval<BitType> getMask() {
+		return mask;
+	}
+
+	/**
+	 * @return the index image, with {@link #isBoundary(int)} flagged on all boundary pixels.
+	 * For zero min index images this is the cached image itself, otherwise a translated view of it.
+	 */
+	public RandomAccessibleInterval<IntType> getFlaggedIndexImg() {
+		if(Views.isZeroMin(indexImg)) return flagged;
+		return Views.translate(flagged, Intervals.minAsLongArray(indexImg));
+	}
+
+	/**
+	 * @return whether a value of {@link #getFlaggedIndexImg()} belongs to a boundary pixel
+	 */
+	public static boolean isBoundary(int flaggedIndex) {
+		return (flaggedIndex & BOUNDARY_FLAG) != 0;
+	}
+
+	/**
+	 * @return the label set index of a value of {@link #getFlaggedIndexImg()}, or the value itself if it is not flagged
+	 */
+	public static int indexOf(int flaggedIndex) {
+		return flaggedIndex & ~BOUNDARY_FLAG;
+	}
+}
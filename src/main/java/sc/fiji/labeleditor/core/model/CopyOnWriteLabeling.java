@@ -0,0 +1,101 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Uses a non-overlapping label map as the index image of an {@link ImgLabeling} without importing it first.
+ * Label set {@code i} contains label {@code i}, the label map values are used as indices directly.
+ * Cells of the index image are read from the label map on first access and dropped again by the cache
+ * as long as they are unchanged, only edited cells are written to disk. The label map itself is never modified.
+ * Since the mapping is dense, this is meant for label maps with non-negative labels up to {@link #MAX_LABEL},
+ * sparse label maps should be imported with {@link LabelMapIngest}.
+ * The largest label is either given by the caller or found by reading the whole label map once.
+ */
+class CopyOnWriteLabeling {
+
+	static final int MAX_LABEL = 1 << 24;
+
+	static ImgLabeling<IntType, ? extends IntegerType<?>> wrap(RandomAccessibleInterval<? extends IntegerType<?>> labelMap, IndexCache cache) {
+		return wrap(labelMap, findMaxLabel(labelMap), cache);
+	}
+
+	/**
+	 * @param maxLabel the largest label of the label map, the label map must not contain larger or negative labels.
+	 * Passing the largest value of the label map type avoids reading the label map, but creates one label per value.
+	 */
+	static ImgLabeling<IntType, ? extends IntegerType<?>> wrap(RandomAccessibleInterval<? extends IntegerType<?>> labelMap, int maxLabel, IndexCache cache) {
+		if(maxLabel < 0 || maxLabel > MAX_LABEL) {
+			throw new IllegalArgumentException("Wrapping a label map requires labels from 0 to " + MAX_LABEL + ", got max label " + maxLabel + ", it has to be imported.");
+		}
+		ImgLabeling<IntType, ? extends IntegerType<?>> labeling =
+				IndexImgs.createCachedLabelingFrom(labelMap, maxLabel + 1, cache);
+		final List<Set<IntType>> labelSets = new ArrayList<>(maxLabel + 1);
+		labelSets.add(Collections.emptySet()); // empty 0 label
+		for (int label = 1; label <= maxLabel; label++) {
+			// label sets are never modified by the mapping, a singleton is the smallest set
+			labelSets.add(Collections.singleton(new IntType(label)));
+		}
+		IndexImgs.setLabelSets(labeling.getMapping(), labelSets);
+		return labeling;
+	}
+
+	private static int findMaxLabel(RandomAccessibleInterval<? extends IntegerType<?>> labelMap) {
+		List<long[]> chunks = LoopBuilder.setImages(labelMap).multiThreaded().forEachChunk(chunk -> {
+			long[] minMax = {0, 0};
+			chunk.forEachPixel(pixel -> {
+				long value = pixel.getIntegerLong();
+				if(value < minMax[0]) minMax[0] = value;
+				if(value > minMax[1]) minMax[1] = value;
+			});
+			return minMax;
+		});
+		long max = 0;
+		for (long[] minMax : chunks) {
+			if(minMax[0] < 0) {
+				throw new IllegalArgumentException("Label map contains negative label " + minMax[0] + ", it has to be imported.");
+			}
+			max = Math.max(max, minMax[1]);
+		}
+		if(max > MAX_LABEL) {
+			throw new IllegalArgumentException("Label map contains label " + max + ", wrapping it requires labels up to " + MAX_LABEL + ", it has to be imported.");
+		}
+		return (int) max;
+	}
+}
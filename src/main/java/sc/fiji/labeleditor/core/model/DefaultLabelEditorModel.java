@@ -28,12 +28,9 @@
  */
 package sc.fiji.labeleditor.core.model;
 
+import net.imglib2.Interval;
 import net.imglib2.RandomAccessibleInterval;
-import net.imglib2.cache.img.DiskCachedCellImgFactory;
-import net.imglib2.img.Img;
-import net.imglib2.loops.LoopBuilder;
 import net.imglib2.roi.labeling.ImgLabeling;
-import net.imglib2.roi.labeling.LabelingMapping;
 import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.NumericType;
 import net.imglib2.type.numeric.integer.IntType;
@@ -41,6 +38,7 @@ import net.imglib2.util.Intervals;
 import org.scijava.listeners.Listeners;
 import sc.fiji.labeleditor.core.model.colors.DefaultLabelEditorTagColors;
 import sc.fiji.labeleditor.core.model.colors.LabelEditorTagColors;
+import sc.fiji.labeleditor.core.model.tagging.BitSetLabelEditorTagging;
 import sc.fiji.labeleditor.core.model.tagging.DefaultLabelEditorTagging;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTagging;
@@ -48,18 +46,20 @@ import sc.fiji.labeleditor.core.model.tagging.LabelEditorTagging;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class DefaultLabelEditorModel<L> implements LabelEditorModel<L> {
 
-	private ImgLabeling<L, ? extends IntegerType<?> > labels;
+	private volatile ImgLabeling<L, ? extends IntegerType<?> > labels;
 	private RandomAccessibleInterval<? extends NumericType<?>> data;
 	private LabelEditorTagging<L> tagging;
-	private Comparator<L> labelComparator;
+	private LabelOrdering<L> labelOrdering;
+	private LabelSetIndex<L> labelSetIndex;
+	private BoundaryMask boundaryMask;
+	private LabelRegionIndex<L> regionIndex;
+	private LabelMapIngest labelMapIngest;
+	private IndexCache indexCache = new IndexCache(LabelEditorModelOptions.options());
 
 	private List<Object> orderedTags = new ArrayList<>();
 
@@ -73,48 +73,74 @@ public class DefaultLabelEditorModel<L> implements LabelEditorModel<L> {
 		this.data = data;
 	}
 
+	/**
+	 * @param options the parameters of index images created by this model, e.g. when its index image gets widened
+	 */
+	public DefaultLabelEditorModel(ImgLabeling<L, ? extends IntegerType<?>> labeling, RandomAccessibleInterval<? extends NumericType<?>> data, LabelEditorModelOptions options) {
+		this(labeling, data);
+		this.indexCache = new IndexCache(options);
+	}
+
 	public DefaultLabelEditorModel(ImgLabeling<L, ? extends IntegerType<?>> labeling) {
 		if(labeling != null) {
 			setName("model " + System.identityHashCode(this));
 			this.labels = labeling;
+			labelSetIndex = new LabelSetIndex<>(labeling.getMapping());
 			initLabelOrdering(labeling);
 			initTagging();
 			addDefaultColorsets();
 		}
 	}
+	/**
+	 * Creates a model with one label per value of the label map, 0 being the background.
+	 * Only label values present in the map are added to the labeling mapping.
+	 */
 	public static DefaultLabelEditorModel<IntType> initFromLabelMap(RandomAccessibleInterval<? extends IntegerType<?>> labelMap) {
-		return new DefaultLabelEditorModel<>(makeLabeling(labelMap));
+		return initFromLabelMap(labelMap, null);
 	}
 
 	public static DefaultLabelEditorModel<IntType> initFromLabelMap(RandomAccessibleInterval<? extends IntegerType<?>> labelMap, RandomAccessibleInterval<? extends NumericType<?>> data) {
-		return new DefaultLabelEditorModel<>(makeLabeling(labelMap), data);
-	}
-
-	private static ImgLabeling<IntType, IntType> makeLabeling(RandomAccessibleInterval<? extends IntegerType<?>> labelMap) {
-		Img<IntType> backing = new DiskCachedCellImgFactory<>(new IntType()).create(labelMap);
-		final ImgLabeling< IntType, IntType > labeling = new ImgLabeling<>( backing );
-		AtomicInteger max = new AtomicInteger(0);
-		LoopBuilder.setImages(labelMap, backing).multiThreaded().forEachPixel((input, output) -> {
-			int intInput = input.getInteger();
-			if(intInput > max.get()) max.getAndSet(intInput);
-			output.set(intInput);
-		});
-		final ArrayList<Set<IntType>> labelSets = new ArrayList<>();
-
-		labelSets.add( new HashSet<>() ); // empty 0 label
-		for (int label = 1; label <= max.get(); ++label) {
-			final HashSet< IntType > set = new HashSet< >();
-			set.add( new IntType(label) );
-			labelSets.add( set );
-		}
+		return initFromLabelMap(labelMap, data, LabelEditorModelOptions.options());
+	}
+
+	public static DefaultLabelEditorModel<IntType> initFromLabelMap(RandomAccessibleInterval<? extends IntegerType<?>> labelMap, RandomAccessibleInterval<? extends NumericType<?>> data, LabelEditorModelOptions options) {
+		IndexCache cache = new IndexCache(options);
+		LabelMapIngest ingest = LabelMapIngest.run(labelMap, cache);
+		DefaultLabelEditorModel<IntType> model = new DefaultLabelEditorModel<>(ingest.getLabeling(), data);
+		model.indexCache = cache;
+		model.labelMapIngest = ingest;
+		return model;
+	}
 
-		new LabelingMapping.SerialisationAccess<IntType>(labeling.getMapping()) {
-			{
-				super.setLabelSets(labelSets);
-			}
-		};
+	/**
+	 * Creates a model using the label map as index image without importing it first, label set {@code i} contains label {@code i}.
+	 * Cells are read from the label map when accessed, edits are kept in a disk cache and never modify the label map.
+	 * The label map has to contain non-negative labels up to {@code 1 << 24}. It is read once to find the largest label,
+	 * pass {@code maxLabel} to avoid that.
+	 */
+	public static DefaultLabelEditorModel<IntType> wrapLabelMap(RandomAccessibleInterval<? extends IntegerType<?>> labelMap) {
+		return wrapLabelMap(labelMap, null);
+	}
+
+	public static DefaultLabelEditorModel<IntType> wrapLabelMap(RandomAccessibleInterval<? extends IntegerType<?>> labelMap, RandomAccessibleInterval<? extends NumericType<?>> data) {
+		return wrapLabelMap(labelMap, data, LabelEditorModelOptions.options());
+	}
+
+	public static DefaultLabelEditorModel<IntType> wrapLabelMap(RandomAccessibleInterval<? extends IntegerType<?>> labelMap, RandomAccessibleInterval<? extends NumericType<?>> data, LabelEditorModelOptions options) {
+		IndexCache cache = new IndexCache(options);
+		DefaultLabelEditorModel<IntType> model = new DefaultLabelEditorModel<>(CopyOnWriteLabeling.wrap(labelMap, cache), data);
+		model.indexCache = cache;
+		return model;
+	}
 
-		return labeling;
+	/**
+	 * @param maxLabel the largest label of the label map, the label map must not contain larger labels
+	 */
+	public static DefaultLabelEditorModel<IntType> wrapLabelMap(RandomAccessibleInterval<? extends IntegerType<?>> labelMap, int maxLabel, RandomAccessibleInterval<? extends NumericType<?>> data, LabelEditorModelOptions options) {
+		IndexCache cache = new IndexCache(options);
+		DefaultLabelEditorModel<IntType> model = new DefaultLabelEditorModel<>(CopyOnWriteLabeling.wrap(labelMap, maxLabel, cache), data);
+		model.indexCache = cache;
+		return model;
 	}
 
 	protected void addDefaultColorsets() {
@@ -133,14 +159,23 @@ public class DefaultLabelEditorModel<L> implements LabelEditorModel<L> {
 
 	// TODO: Consider using setters instead of protected methods.
 	private void initTagging() {
-		tagging = new DefaultLabelEditorTagging<>(this);
+		setTagging(new DefaultLabelEditorTagging<>(this));
+	}
+
+	/**
+	 * Replaces the tagging store of this model, e.g. with a {@link BitSetLabelEditorTagging}
+	 * for labelings with many labels. Has to be called before the model is displayed,
+	 * since views register their listeners on the tagging.
+	 */
+	public void setTagging(LabelEditorTagging<L> tagging) {
+		this.tagging = tagging;
 		tagging.addTag(LabelEditorTag.MOUSE_OVER);
 		tagging.addTag(LabelEditorTag.FOCUS);
 		tagging.addTag(LabelEditorTag.SELECTED);
 	}
 
 	private void initLabelOrdering(ImgLabeling<L, ? extends IntegerType<?>> labeling) {
-		labelComparator = this::compareLabels;
+		labelOrdering = new LabelOrdering<>(labeling.getMapping(), this::compareLabels);
 	}
 
 	int compareLabels(L label1, L label2) {
@@ -156,13 +191,53 @@ public class DefaultLabelEditorModel<L> implements LabelEditorModel<L> {
 		return tagColors;
 	}
 
+	/**
+	 * Replaces the order of the labels, which is by name by default.
+	 * The comparator must define a fixed order, labels are ranked by it once.
+	 */
 	public void setLabelComparator(Comparator<L> comparator) {
-		this.labelComparator = comparator;
+		this.labelOrdering = new LabelOrdering<>(labeling().getMapping(), comparator);
 	}
 
 	@Override
 	public Comparator<L> getLabelComparator() {
-		return labelComparator;
+		return labelOrdering.comparator();
+	}
+
+	@Override
+	public List<L> getSortedLabels(int labelSetIndex) {
+		return labelOrdering.getSortedLabels(labelSetIndex);
+	}
+
+	@Override
+	public int[] getLabelSetIndices(L label) {
+		return labelSetIndex.get(label);
+	}
+
+	@Override
+	public int getLabelRank(L label) {
+		return labelOrdering.getRank(label);
+	}
+
+	@Override
+	public int getLabelOrdinal(L label) {
+		return labelOrdering.getOrdinal(label);
+	}
+
+	/**
+	 * Replaces the labeling with one with a wider index image if its index type can't refer to {@code numSets} label sets.
+	 * The index image is converted cell by cell when the cells are accessed, the label sets stay the same.
+	 * Listeners are notified about the change of the whole labeling.
+	 */
+	@Override
+	public synchronized void ensureIndexCapacity(long numSets) {
+		if(numSets <= IndexImgs.getMaxNumSets(labels)) return;
+		labels = IndexImgs.widen(labels, numSets, indexCache);
+		labelSetIndex = new LabelSetIndex<>(labels.getMapping());
+		labelOrdering = new LabelOrdering<>(labels.getMapping(), labelOrdering.comparator());
+		if(boundaryMask != null) setBoundaryMaskEnabled(true);
+		regionIndex = null;
+		notifyLabelingListeners();
 	}
 
 	@Override
@@ -214,7 +289,12 @@ public class DefaultLabelEditorModel<L> implements LabelEditorModel<L> {
 				.append(" of type ").append(getLabelClass().getName());
 		res.append("\n\t.. label sets: ").append(labeling().getMapping().numSets());
 		res.append("\n\t.. labels: ").append(labeling().getMapping().getLabels().size());
-		res.append("\n\t.. tags: ").append(tagging().getAllTags().size()).append("\n");
+		res.append("\n\t.. tags: ").append(tagging().getAllTags().size());
+		if(labelMapIngest != null) {
+			res.append("\n\t.. label map import: ").append(labelMapIngest);
+		}
+		res.append("\n\t.. index cache: ").append(indexCache);
+		res.append("\n");
 		return res.toString();
 	}
 
@@ -235,8 +315,49 @@ public class DefaultLabelEditorModel<L> implements LabelEditorModel<L> {
 
 	@Override
 	public void notifyLabelingListeners() {
+		notifyLabelingListeners(null);
+	}
+
+	@Override
+	public void notifyLabelingListeners(Interval changed) {
+		if(labelSetIndex != null) labelSetIndex.update();
+		if(labelOrdering != null) labelOrdering.update();
+		if(boundaryMask != null) boundaryMask.invalidate(changed);
+		if(regionIndex != null) regionIndex.labelingChanged(changed);
 		LabelingChangedEvent e = new LabelingChangedEvent();
+		e.interval = changed;
 		listeners.list.forEach(listener -> listener.labelingChanged(e));
 	}
 
+	/**
+	 * Precomputes the label boundaries in source space instead of detecting them on screen with every repaint,
+	 * which pays off for large labelings which are mostly static. Like the boundaries detected on screen, boundaries
+	 * are only computed within XY planes, the mask is therefore meant for viewers slicing along Z.
+	 * Has to be enabled before the model is displayed.
+	 */
+	public void setBoundaryMaskEnabled(boolean enabled) {
+		boundaryMask = enabled ? new BoundaryMask(labeling().getIndexImg(), 0, 1) : null;
+	}
+
+	/**
+	 * The region index is computed on first access and kept up to date with edits made through it.
+	 */
+	@Override
+	public synchronized LabelRegionIndex<L> getRegionIndex() {
+		if(regionIndex == null) regionIndex = new LabelRegionIndex<>(labeling());
+		return regionIndex;
+	}
+
+	/**
+	 * @return the disk caches of the index images created by this model, with statistics about their usage
+	 */
+	public IndexCache getIndexCache() {
+		return indexCache;
+	}
+
+	@Override
+	public BoundaryMask getBoundaryMask() {
+		return boundaryMask;
+	}
+
 }
@@ -0,0 +1,159 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.Dimensions;
+import net.imglib2.cache.img.CellLoader;
+import net.imglib2.cache.img.DiskCachedCellImgOptions;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.CellGrid;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * The disk caches of the index images of a model, created according to {@link LabelEditorModelOptions}.
+ * Counts the cells loaded into memory from their source, which happens on the first access of a cell
+ * and, if only changed cells are written to disk, again after an unchanged cell was evicted.
+ * Cells evicted from memory which are not loaded from their source again are kept in the cache directories.
+ */
+public class IndexCache {
+
+	private static final int DEFAULT_CELL_SIZE = 64;
+
+	private final LabelEditorModelOptions options;
+	private final List<Path> directories = new CopyOnWriteArrayList<>();
+	private final AtomicLong loadedCells = new AtomicLong();
+
+	public IndexCache(LabelEditorModelOptions options) {
+		this.options = options;
+	}
+
+	public LabelEditorModelOptions getOptions() {
+		return options;
+	}
+
+	/**
+	 * @return how many cells were loaded from their source since the cache was created
+	 */
+	public long getLoadedCells() {
+		return loadedCells.get();
+	}
+
+	/**
+	 * @return how many evicted cells are stored in the cache directories
+	 */
+	public long getCellsOnDisk() {
+		return scanDirectories()[0];
+	}
+
+	/**
+	 * @return the size of all evicted cells stored in the cache directories
+	 */
+	public long getBytesOnDisk() {
+		return scanDirectories()[1];
+	}
+
+	private long[] scanDirectories() {
+		long[] res = new long[2];
+		for (Path directory : directories) {
+			try (Stream<Path> paths = Files.walk(directory)) {
+				Iterator<Path> iterator = paths.filter(Files::isRegularFile).iterator();
+				while(iterator.hasNext()) {
+					res[0]++;
+					res[1] += iterator.next().toFile().length();
+				}
+			} catch (IOException | UncheckedIOException e) {
+				// cells can be written and deleted while scanning, the statistics are a snapshot anyways
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Creates the options for a new index image with its own cache directory.
+	 * @param source the image the index image is derived from, its cell grid is used if no cell size is configured
+	 */
+	DiskCachedCellImgOptions createImgOptions(Dimensions source) {
+		Path directory;
+		try {
+			directory = options.getCacheDirectory() == null ?
+					Files.createTempDirectory("labeleditor-index") : Files.createTempDirectory(options.getCacheDirectory(), "labeleditor-index");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		directories.add(directory);
+		return DiskCachedCellImgOptions.options()
+				.cellDimensions(options.getCellDimensions() == null ? getCellDimensions(source) : options.getCellDimensions())
+				.cacheType(options.getCacheType())
+				.maxCacheSize(options.getMaxCacheSize())
+				.cacheDirectory(directory)
+				.deleteCacheDirectoryOnExit(true)
+				.dirtyAccesses(options.isDirtyAccesses())
+				// viewers load cached index images progressively through volatile views
+				.volatileAccesses(true);
+	}
+
+	/**
+	 * @return the cell grid of {@code source} if it has one, cells of {@value #DEFAULT_CELL_SIZE} pixels per dimension otherwise
+	 */
+	static int[] getCellDimensions(Dimensions source) {
+		int[] res = new int[source.numDimensions()];
+		if(source instanceof AbstractCellImg) {
+			CellGrid grid = ((AbstractCellImg<?, ?, ?, ?>) source).getCellGrid();
+			for (int d = 0; d < res.length; d++) res[d] = grid.cellDimension(d);
+		} else {
+			for (int d = 0; d < res.length; d++) res[d] = (int) Math.min(DEFAULT_CELL_SIZE, Math.max(1, source.dimension(d)));
+		}
+		return res;
+	}
+
+	/**
+	 * @return {@code loader}, counting each loaded cell
+	 */
+	<T> CellLoader<T> counting(CellLoader<T> loader) {
+		return cell -> {
+			loadedCells.incrementAndGet();
+			loader.load(cell);
+		};
+	}
+
+	@Override
+	public String toString() {
+		long[] disk = scanDirectories();
+		return loadedCells.get() + " cells loaded, " + disk[0] + " cells (" + disk[1] / 1024 + " KB) on disk";
+	}
+}
@@ -0,0 +1,156 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.Dimensions;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.cache.img.CellLoader;
+import net.imglib2.cache.img.DiskCachedCellImgFactory;
+import net.imglib2.cache.img.DiskCachedCellImgOptions;
+import net.imglib2.cache.img.SingleCellArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Creates index images of labelings with the narrowest type able to hold the expected number of label sets,
+ * {@link UnsignedByteType} for up to {@value #MAX_BYTE_SETS}, {@link UnsignedShortType} for up to {@value #MAX_SHORT_SETS}
+ * and {@link IntType} for more label sets. Disk cached index images only use narrow types if enabled in the
+ * {@link LabelEditorModelOptions#narrowIndexTypes(boolean) options}. Since the {@link LabelingMapping} of a labeling never drops
+ * label sets, labelings which grow beyond the range of their index type can be widened, see {@link #widen(ImgLabeling, long, IndexCache)}.
+ */
+public final class IndexImgs {
+
+	public static final long MAX_BYTE_SETS = 1 << 8;
+	public static final long MAX_SHORT_SETS = 1 << 16;
+
+	private IndexImgs() {
+	}
+
+	/**
+	 * @return how many label sets an index image of the given labeling can refer to
+	 */
+	public static long getMaxNumSets(ImgLabeling<?, ?> labeling) {
+		return getMaxNumSets((IntegerType<?>) Util.getTypeFromInterval(labeling.getIndexImg()));
+	}
+
+	static long getMaxNumSets(IntegerType<?> type) {
+		return (long) type.getMaxValue() + 1;
+	}
+
+	/**
+	 * Creates an array backed labeling with an index image able to hold {@code numSets} label sets.
+	 * Its index image can't refer to more label sets, so only use it if the label sets written to it are known beforehand.
+	 */
+	public static <L> ImgLabeling<L, ? extends IntegerType<?>> createLabeling(Dimensions dimensions, long numSets) {
+		if(numSets <= MAX_BYTE_SETS) return createArrayLabeling(new ArrayImgFactory<>(new UnsignedByteType()), dimensions);
+		if(numSets <= MAX_SHORT_SETS) return createArrayLabeling(new ArrayImgFactory<>(new UnsignedShortType()), dimensions);
+		return createArrayLabeling(new ArrayImgFactory<>(new IntType()), dimensions);
+	}
+
+	private static <L, T extends NativeType<T> & IntegerType<T>> ImgLabeling<L, T> createArrayLabeling(ArrayImgFactory<T> factory, Dimensions dimensions) {
+		return new ImgLabeling<>(factory.create(dimensions));
+	}
+
+	/**
+	 * Creates a labeling with a disk cached index image able to hold {@code numSets} label sets.
+	 */
+	public static <L> ImgLabeling<L, ? extends IntegerType<?>> createCachedLabeling(Dimensions dimensions, long numSets, IndexCache cache) {
+		DiskCachedCellImgOptions options = cache.createImgOptions(dimensions);
+		if(isNarrow(cache, numSets, MAX_BYTE_SETS)) return createCachedLabeling(new UnsignedByteType(), dimensions, options, cache.counting(cell -> {}));
+		if(isNarrow(cache, numSets, MAX_SHORT_SETS)) return createCachedLabeling(new UnsignedShortType(), dimensions, options, cache.counting(cell -> {}));
+		return createCachedLabeling(new IntType(), dimensions, options, cache.counting(cell -> {}));
+	}
+
+	/**
+	 * Creates a labeling with a disk cached index image able to hold {@code numSets} label sets, which reads each cell
+	 * from {@code source} on first access. With dirty accesses enabled in the options of the cache, only cells which were
+	 * changed are written to disk, unchanged cells are read from {@code source} again. {@code source} is never modified.
+	 */
+	public static <L> ImgLabeling<L, ? extends IntegerType<?>> createCachedLabelingFrom(RandomAccessibleInterval<? extends IntegerType<?>> source, long numSets, IndexCache cache) {
+		RandomAccessibleInterval<? extends IntegerType<?>> zeroMinSource = Views.zeroMin(source);
+		DiskCachedCellImgOptions options = cache.createImgOptions(source);
+		if(isNarrow(cache, numSets, MAX_BYTE_SETS)) return createCachedLabeling(new UnsignedByteType(), source, options, cache.counting(cell -> copy(zeroMinSource, cell)));
+		if(isNarrow(cache, numSets, MAX_SHORT_SETS)) return createCachedLabeling(new UnsignedShortType(), source, options, cache.counting(cell -> copy(zeroMinSource, cell)));
+		return createCachedLabeling(new IntType(), source, options, cache.counting(cell -> copy(zeroMinSource, cell)));
+	}
+
+	private static boolean isNarrow(IndexCache cache, long numSets, long maxNumSets) {
+		return cache.getOptions().isNarrowIndexTypes() && numSets <= maxNumSets;
+	}
+
+	private static <L, T extends NativeType<T> & IntegerType<T>> ImgLabeling<L, T> createCachedLabeling(T type, Dimensions dimensions, DiskCachedCellImgOptions options, CellLoader<T> loader) {
+		return new ImgLabeling<>(new DiskCachedCellImgFactory<>(type, options).create(Intervals.dimensionsAsLongArray(dimensions), loader));
+	}
+
+	private static void copy(RandomAccessibleInterval<? extends IntegerType<?>> source, SingleCellArrayImg<? extends IntegerType<?>, ?> cell) {
+		LoopBuilder.setImages(Views.interval(source, cell), cell).forEachPixel((input, output) -> output.setInteger(input.getInteger()));
+	}
+
+	/**
+	 * Creates a labeling with the same label sets as {@code labeling} and an index image able to hold {@code numSets} label sets.
+	 * The cells of the new index image are converted from the index image of {@code labeling} when they are first accessed.
+	 */
+	public static <L> ImgLabeling<L, ? extends IntegerType<?>> widen(ImgLabeling<L, ?> labeling, long numSets, IndexCache cache) {
+		ImgLabeling<L, ? extends IntegerType<?>> res = createCachedLabelingFrom(labeling.getIndexImg(), numSets, cache);
+		setLabelSets(res.getMapping(), getLabelSets(labeling.getMapping()));
+		return res;
+	}
+
+	/**
+	 * Replaces the label sets of an empty mapping.
+	 */
+	static <L> void setLabelSets(LabelingMapping<L> mapping, List<Set<L>> labelSets) {
+		new LabelingMapping.SerialisationAccess<L>(mapping) {
+			{
+				super.setLabelSets(labelSets);
+			}
+		};
+	}
+
+	private static <L> List<Set<L>> getLabelSets(LabelingMapping<L> mapping) {
+		return new LabelingMapping.SerialisationAccess<L>(mapping) {
+			List<Set<L>> get() {
+				return super.getLabelSets();
+			}
+		}.get();
+	}
+}
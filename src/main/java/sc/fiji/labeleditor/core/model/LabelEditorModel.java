@@ -28,6 +28,7 @@
  */
 package sc.fiji.labeleditor.core.model;
 
+import net.imglib2.Interval;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.roi.labeling.ImgLabeling;
 import net.imglib2.type.numeric.IntegerType;
@@ -36,7 +37,10 @@ import org.scijava.listeners.Listeners;
 import sc.fiji.labeleditor.core.model.colors.LabelEditorTagColors;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTagging;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
 
 public interface LabelEditorModel <L> {
 
@@ -46,6 +50,57 @@ public interface LabelEditorModel <L> {
 
 	Comparator<L> getLabelComparator();
 
+	/**
+	 * @return the labels of the label set at {@code labelSetIndex} of the labeling mapping,
+	 * sorted by {@link #getLabelComparator()}. The returned list must not be modified.
+	 */
+	default List<L> getSortedLabels(int labelSetIndex) {
+		List<L> res = new ArrayList<>(labeling().getMapping().labelsAtIndex(labelSetIndex));
+		res.sort(getLabelComparator());
+		return res;
+	}
+
+	/**
+	 * @return the indices of all label sets of the labeling mapping containing {@code label}.
+	 * The returned array must not be modified.
+	 */
+	int[] getLabelSetIndices(L label);
+
+	/**
+	 * @return the rank of {@code label} in the order of {@link #getLabelComparator()}, dense from 0 to the number
+	 * of labels - 1, or -1 if the label is not part of the labeling. Ranks only change when labels are added.
+	 */
+	default int getLabelRank(L label) {
+		List<L> labels = new ArrayList<>(labeling().getMapping().getLabels());
+		labels.sort(getLabelComparator());
+		return labels.indexOf(label);
+	}
+
+	/**
+	 * @return the position of {@code label} in the order in which the labels first appeared in the labeling mapping,
+	 * dense from 0 to the number of labels - 1, or -1 if the label is not part of the labeling.
+	 * Unlike the rank, the ordinal of a label does not change when other labels are added.
+	 */
+	default int getLabelOrdinal(L label) {
+		return new ArrayList<>(labeling().getMapping().getLabels()).indexOf(label);
+	}
+
+	/**
+	 * Makes sure the index image of the labeling can refer to {@code numSets} label sets.
+	 * Has to be called before editing the labeling in a way which might add label sets to the mapping,
+	 * models with narrow index images might replace their labeling with one with a wider index image.
+	 */
+	default void ensureIndexCapacity(long numSets) {
+	}
+
+	/**
+	 * @return bounding boxes, sizes and centroids of the labels, to be used instead of scanning the labeling.
+	 * Models should keep the index and update it with {@link #notifyLabelingListeners(Interval)}.
+	 */
+	default LabelRegionIndex<L> getRegionIndex() {
+		return new LabelRegionIndex<>(labeling());
+	}
+
 	RandomAccessibleInterval<? extends NumericType<?>> getData();
 
 	String getName();
@@ -55,4 +110,27 @@ public interface LabelEditorModel <L> {
 	void pauseLabelingListeners();
 	void resumeLabelingListeners();
 	void notifyLabelingListeners();
+
+	/**
+	 * Notifies the labeling listeners about changes of the labeling within {@code changed}.
+	 * Models caching anything derived from the labeling can use this to only update the changed part.
+	 * @param changed the changed interval, or null if unknown
+	 */
+	default void notifyLabelingListeners(Interval changed) {
+		notifyLabelingListeners();
+	}
+
+	/**
+	 * @return the dimensions of the labeling shown as X, Y and Z by the viewer, further dimensions are time or channels
+	 */
+	default int[] getSpatialDimensions() {
+		return IntStream.range(0, Math.min(3, labeling().numDimensions())).toArray();
+	}
+
+	/**
+	 * @return the precomputed boundaries of the labeling, or null if boundaries should be computed while rendering
+	 */
+	default BoundaryMask getBoundaryMask() {
+		return null;
+	}
 }
@@ -0,0 +1,132 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.cache.img.DiskCachedCellImgOptions.CacheType;
+
+import java.nio.file.Path;
+
+/**
+ * Parameters of the disk cached index images a {@link DefaultLabelEditorModel} creates, e.g. when importing a label map
+ * or widening the index image. Options are set by chaining, e.g.
+ * {@code LabelEditorModelOptions.options().cellDimensions(128, 128, 16).cacheType(CacheType.BOUNDED).maxCacheSize(4000)}.
+ */
+public class LabelEditorModelOptions {
+
+	private int[] cellDimensions = null;
+	private CacheType cacheType = CacheType.SOFTREF;
+	private long maxCacheSize = 1000;
+	private Path cacheDirectory = null;
+	private boolean dirtyAccesses = true;
+	private boolean narrowIndexTypes = false;
+
+	public static LabelEditorModelOptions options() {
+		return new LabelEditorModelOptions();
+	}
+
+	/**
+	 * @param cellDimensions the cell size of the index images, by default the cell grid of the source image
+	 *                       is used if it has one, cells of 64 pixels per dimension otherwise
+	 */
+	public LabelEditorModelOptions cellDimensions(int... cellDimensions) {
+		this.cellDimensions = cellDimensions;
+		return this;
+	}
+
+	/**
+	 * @param cacheType whether cells are kept in memory until the garbage collector needs the memory ({@link CacheType#SOFTREF})
+	 *                  or up to {@link #maxCacheSize(long)} cells are kept ({@link CacheType#BOUNDED})
+	 */
+	public LabelEditorModelOptions cacheType(CacheType cacheType) {
+		this.cacheType = cacheType;
+		return this;
+	}
+
+	/**
+	 * @param maxCacheSize how many cells are kept in memory with {@link CacheType#BOUNDED}
+	 */
+	public LabelEditorModelOptions maxCacheSize(long maxCacheSize) {
+		this.maxCacheSize = maxCacheSize;
+		return this;
+	}
+
+	/**
+	 * @param cacheDirectory the directory in which a temporary cache directory is created for each index image,
+	 *                       the system temp directory by default. Cache directories are deleted on exit.
+	 */
+	public LabelEditorModelOptions cacheDirectory(Path cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+		return this;
+	}
+
+	/**
+	 * @param dirtyAccesses whether only changed cells are written to disk when they are evicted from memory,
+	 *                      otherwise each evicted cell is written
+	 */
+	public LabelEditorModelOptions dirtyAccesses(boolean dirtyAccesses) {
+		this.dirtyAccesses = dirtyAccesses;
+		return this;
+	}
+
+	/**
+	 * @param narrowIndexTypes whether index images are created with the narrowest type able to refer to their label sets,
+	 *                         e.g. {@link net.imglib2.type.numeric.integer.UnsignedByteType} for up to 256 label sets,
+	 *                         instead of {@link net.imglib2.type.numeric.integer.IntType}. Edits adding label sets then have to call
+	 *                         {@link LabelEditorModel#ensureIndexCapacity(long)} before writing to the labeling,
+	 *                         which the behaviours of the label editor do.
+	 */
+	public LabelEditorModelOptions narrowIndexTypes(boolean narrowIndexTypes) {
+		this.narrowIndexTypes = narrowIndexTypes;
+		return this;
+	}
+
+	public int[] getCellDimensions() {
+		return cellDimensions;
+	}
+
+	public CacheType getCacheType() {
+		return cacheType;
+	}
+
+	public long getMaxCacheSize() {
+		return maxCacheSize;
+	}
+
+	public Path getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+	public boolean isDirtyAccesses() {
+		return dirtyAccesses;
+	}
+
+	public boolean isNarrowIndexTypes() {
+		return narrowIndexTypes;
+	}
+}
@@ -0,0 +1,172 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.Intervals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Imports a label map into an {@link ImgLabeling} with one label set per label value present in the map,
+ * 0 being the background. Label values don't need to be dense, the index image refers to a compact mapping
+ * of the present labels. The label map is read twice in parallel chunks, once to collect the present labels
+ * and once to write the indices. The index image has the narrowest type for the number of labels, see {@link IndexImgs}.
+ */
+class LabelMapIngest {
+
+	private final ImgLabeling<IntType, ? extends IntegerType<?>> labeling;
+	private final long numPixels;
+	private final int numLabels;
+	private final long nanos;
+
+	private LabelMapIngest(ImgLabeling<IntType, ? extends IntegerType<?>> labeling, long numPixels, int numLabels, long nanos) {
+		this.labeling = labeling;
+		this.numPixels = numPixels;
+		this.numLabels = numLabels;
+		this.nanos = nanos;
+	}
+
+	static LabelMapIngest run(RandomAccessibleInterval<? extends IntegerType<?>> labelMap, IndexCache cache) {
+		long start = System.nanoTime();
+		int[] labels = collectLabels(labelMap);
+		ImgLabeling<IntType, ? extends IntegerType<?>> labeling = IndexImgs.createCachedLabeling(labelMap, labels.length + 1, cache);
+		LoopBuilder.setImages(labelMap, labeling.getIndexImg()).multiThreaded().forEachChunk(chunk -> {
+			// labels mostly cover neighboring pixels, the index of the last label is reused
+			int[] last = {0, 0};
+			chunk.forEachPixel((input, output) -> {
+				int label = input.getInteger();
+				if(label != last[0]) {
+					last[0] = label;
+					last[1] = label == 0 ? 0 : Arrays.binarySearch(labels, label) + 1;
+				}
+				output.setInteger(last[1]);
+			});
+			return null;
+		});
+		final List<Set<IntType>> labelSets = new ArrayList<>(labels.length + 1);
+		labelSets.add(new HashSet<>()); // empty 0 label
+		for (int label : labels) {
+			final HashSet<IntType> set = new HashSet<>();
+			set.add(new IntType(label));
+			labelSets.add(set);
+		}
+		IndexImgs.setLabelSets(labeling.getMapping(), labelSets);
+		return new LabelMapIngest(labeling, Intervals.numElements(labelMap), labels.length, System.nanoTime() - start);
+	}
+
+	/**
+	 * @return the sorted, distinct non zero values of the label map
+	 */
+	private static int[] collectLabels(RandomAccessibleInterval<? extends IntegerType<?>> labelMap) {
+		List<int[]> chunks = LoopBuilder.setImages(labelMap).multiThreaded().forEachChunk(chunk -> {
+			LabelCollector collector = new LabelCollector();
+			chunk.forEachPixel(pixel -> collector.add(pixel.getInteger()));
+			return collector.toSortedArray();
+		});
+		LabelCollector merged = new LabelCollector();
+		for (int[] chunk : chunks) {
+			merged.addAll(chunk);
+		}
+		return merged.toSortedArray();
+	}
+
+	ImgLabeling<IntType, ? extends IntegerType<?>> getLabeling() {
+		return labeling;
+	}
+
+	long getNumPixels() {
+		return numPixels;
+	}
+
+	int getNumLabels() {
+		return numLabels;
+	}
+
+	double getPixelsPerSecond() {
+		return nanos == 0 ? 0 : numPixels / (nanos / 1e9);
+	}
+
+	@Override
+	public String toString() {
+		return numPixels + " pixels with " + numLabels + " labels in " + (nanos / 1000000) + " ms ("
+				+ String.format("%.1f", getPixelsPerSecond() / 1e6) + " Mpixels/s)";
+	}
+
+	/**
+	 * Collects distinct label values. Repeated values are skipped, the buffer is deduplicated whenever it is full.
+	 */
+	private static class LabelCollector {
+
+		private int[] values = new int[1024];
+		private int size = 0;
+		private int distinctSize = 0;
+		private int last = 0;
+
+		void add(int value) {
+			if(value == 0 || value == last) return;
+			last = value;
+			if(size == values.length) {
+				compact();
+				if(size > values.length / 2) values = Arrays.copyOf(values, values.length * 2);
+			}
+			values[size++] = value;
+		}
+
+		void addAll(int[] sorted) {
+			for (int value : sorted) {
+				add(value);
+			}
+		}
+
+		int[] toSortedArray() {
+			compact();
+			return Arrays.copyOf(values, size);
+		}
+
+		private void compact() {
+			if(distinctSize == size) return;
+			Arrays.sort(values, 0, size);
+			int distinct = 0;
+			for (int i = 0; i < size; i++) {
+				if(distinct == 0 || values[i] != values[distinct - 1]) values[distinct++] = values[i];
+			}
+			size = distinct;
+			distinctSize = distinct;
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.roi.labeling.LabelingMapping;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Assigns each label of a {@link LabelingMapping} a dense rank following a fixed order, so labels can be
+ * compared by int instead of by the order itself, and keeps the labels of each label set sorted by rank.
+ * Label sets of a mapping are never removed or changed once created, therefore updating only looks at
+ * the sets added since the last update. New labels are merged into the existing order, which keeps
+ * the relative order of all other labels and therefore all previously sorted label sets valid.
+ * Since new labels shift the ranks of all labels ordered after them, each label additionally gets an ordinal
+ * in the order in which the labels first appear in the mapping, which never changes.
+ */
+public class LabelOrdering<L> {
+
+	private final LabelingMapping<L> mapping;
+	private final Comparator<L> order;
+	private final Comparator<L> comparator = this::compare;
+
+	private List<L> orderedLabels = new ArrayList<>();
+	private volatile Map<L, Integer> ranks = new HashMap<>();
+	private final Map<L, Integer> ordinals = new ConcurrentHashMap<>();
+	private volatile List<L>[] sortedLabelSets = new List[0];
+
+	/**
+	 * @param order the order of the labels, it must not change while this ordering is used
+	 */
+	public LabelOrdering(LabelingMapping<L> mapping, Comparator<L> order) {
+		this.mapping = mapping;
+		this.order = order;
+		update();
+	}
+
+	/**
+	 * Ranks the labels and sorts the label sets which were added to the mapping since the last update.
+	 */
+	public synchronized void update() {
+		int numSortedSets = sortedLabelSets.length;
+		int numSets = mapping.numSets();
+		if(numSets <= numSortedSets) return;
+		Map<L, Integer> ranks = this.ranks;
+		Set<L> added = new LinkedHashSet<>();
+		for (int i = numSortedSets; i < numSets; i++) {
+			for (L label : mapping.labelsAtIndex(i)) {
+				if(!ranks.containsKey(label)) added.add(label);
+			}
+		}
+		if(!added.isEmpty()) {
+			for (L label : added) {
+				ordinals.put(label, ordinals.size());
+			}
+			List<L> addedLabels = new ArrayList<>(added);
+			addedLabels.sort(order);
+			orderedLabels = merge(orderedLabels, addedLabels);
+			Map<L, Integer> newRanks = new HashMap<>(orderedLabels.size() * 2);
+			for (int i = 0; i < orderedLabels.size(); i++) {
+				newRanks.put(orderedLabels.get(i), i);
+			}
+			this.ranks = newRanks;
+		}
+		List<L>[] sets = Arrays.copyOf(sortedLabelSets, numSets);
+		IntStream.range(numSortedSets, numSets).parallel().forEach(i -> sets[i] = sort(mapping.labelsAtIndex(i)));
+		sortedLabelSets = sets;
+	}
+
+	/**
+	 * @return the rank of the label, or -1 if the label is not part of the mapping
+	 */
+	public int getRank(L label) {
+		Integer rank = ranks.get(label);
+		if(rank == null) {
+			update();
+			rank = ranks.get(label);
+		}
+		return rank == null ? -1 : rank;
+	}
+
+	/**
+	 * @return the position of the label in the order in which the labels first appeared in the mapping,
+	 * or -1 if the label is not part of the mapping. Unlike the rank, the ordinal of a label never changes.
+	 */
+	public int getOrdinal(L label) {
+		Integer ordinal = ordinals.get(label);
+		if(ordinal == null) {
+			update();
+			ordinal = ordinals.get(label);
+		}
+		return ordinal == null ? -1 : ordinal;
+	}
+
+	/**
+	 * @return a comparator comparing labels by rank. Labels which are not part of the mapping are compared by the order.
+	 */
+	public Comparator<L> comparator() {
+		return comparator;
+	}
+
+	/**
+	 * @return the labels of the label set at {@code index}, sorted by rank. The list must not be modified.
+	 */
+	public List<L> getSortedLabels(int index) {
+		List<L>[] sets = sortedLabelSets;
+		if(index >= sets.length) {
+			update();
+			sets = sortedLabelSets;
+		}
+		return sets[index];
+	}
+
+	private int compare(L label1, L label2) {
+		int rank1 = getRank(label1);
+		int rank2 = getRank(label2);
+		if(rank1 < 0 || rank2 < 0) return order.compare(label1, label2);
+		return Integer.compare(rank1, rank2);
+	}
+
+	private List<L> sort(Set<L> labels) {
+		if(labels.isEmpty()) return Collections.emptyList();
+		if(labels.size() == 1) return Collections.singletonList(labels.iterator().next());
+		List<L> res = new ArrayList<>(labels);
+		res.sort(comparator);
+		return Collections.unmodifiableList(res);
+	}
+
+	private List<L> merge(List<L> sorted, List<L> added) {
+		List<L> res = new ArrayList<>(sorted.size() + added.size());
+		int i = 0, j = 0;
+		while(i < sorted.size() && j < added.size()) {
+			if(order.compare(added.get(j), sorted.get(i)) < 0) res.add(added.get(j++));
+			else res.add(sorted.get(i++));
+		}
+		while(i < sorted.size()) res.add(sorted.get(i++));
+		while(j < added.size()) res.add(added.get(j++));
+		return res;
+	}
+}
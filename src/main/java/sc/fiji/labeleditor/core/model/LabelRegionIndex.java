@@ -0,0 +1,236 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+/**
+ * Bounding box, size and centroid of each label of a labeling. The whole labeling is scanned once in parallel
+ * slabs on first access, edits made through {@link #update(Interval, Runnable)} only rescan the edited interval.
+ * Sizes and centroids stay exact, bounding boxes can only grow with edits and might be larger than the label
+ * after removing pixels from it, until the index is recomputed.
+ * Any other change of the labeling which the model is notified about invalidates the index.
+ */
+public class LabelRegionIndex<L> {
+
+	private static final int SLABS_PER_THREAD = 4;
+
+	private final ImgLabeling<L, ? extends IntegerType<?>> labeling;
+	private Map<L, Region> regions = null;
+	private Interval lastUpdate = null;
+
+	public LabelRegionIndex(ImgLabeling<L, ? extends IntegerType<?>> labeling) {
+		this.labeling = labeling;
+	}
+
+	/**
+	 * @return the bounding box of {@code label}, or null if the labeling doesn't contain it
+	 */
+	public synchronized Interval getBoundingBox(L label) {
+		Region region = getRegions().get(label);
+		return region == null ? null : new FinalInterval(region.min, region.max);
+	}
+
+	/**
+	 * @return the number of pixels of {@code label}
+	 */
+	public synchronized long getSize(L label) {
+		Region region = getRegions().get(label);
+		return region == null ? 0 : region.count;
+	}
+
+	/**
+	 * @return the center of mass of the pixels of {@code label}, or null if the labeling doesn't contain it
+	 */
+	public synchronized double[] getCentroid(L label) {
+		Region region = getRegions().get(label);
+		if(region == null) return null;
+		double[] res = new double[region.sum.length];
+		for (int d = 0; d < res.length; d++) res[d] = region.sum[d] / region.count;
+		return res;
+	}
+
+	/**
+	 * @return the union of the bounding boxes of {@code labels}, or null if the labeling contains none of them
+	 */
+	public synchronized Interval getUnionBoundingBox(Iterable<L> labels) {
+		Interval res = null;
+		for (L label : labels) {
+			Interval box = getBoundingBox(label);
+			if(box != null) res = res == null ? box : Intervals.union(res, box);
+		}
+		return res;
+	}
+
+	/**
+	 * Runs {@code edit}, which is only allowed to change the labeling within {@code changed}, and updates the index
+	 * by scanning {@code changed} before and after the edit. The model has to be notified about the change with the
+	 * same interval afterwards, see {@link LabelEditorModel#notifyLabelingListeners(Interval)}.
+	 */
+	public synchronized void update(Interval changed, Runnable edit) {
+		if(changed == null) {
+			edit.run();
+			return;
+		}
+		Map<L, Region> regions = getRegions();
+		scan(labeling, changed).forEach((label, region) -> regions.get(label).remove(region));
+		edit.run();
+		scan(labeling, changed).forEach((label, region) -> regions.merge(label, region, Region::add));
+		regions.values().removeIf(region -> region.count == 0);
+		lastUpdate = changed;
+	}
+
+	/**
+	 * Invalidates the index unless {@code changed} belongs to the last {@link #update(Interval, Runnable)}.
+	 */
+	synchronized void labelingChanged(Interval changed) {
+		if(changed == null || changed != lastUpdate) regions = null;
+		lastUpdate = null;
+	}
+
+	private Map<L, Region> getRegions() {
+		if(regions == null) regions = scan(labeling, labeling);
+		return regions;
+	}
+
+	/**
+	 * Collects the regions of the label sets within {@code interval} in parallel slabs along the last dimension
+	 * and adds them up per label.
+	 */
+	private static <L> Map<L, Region> scan(ImgLabeling<L, ? extends IntegerType<?>> labeling, Interval interval) {
+		int n = interval.numDimensions();
+		int last = n - 1;
+		long size = interval.dimension(last);
+		long numSlabs = Math.min(size, (long) Runtime.getRuntime().availableProcessors() * SLABS_PER_THREAD);
+		RandomAccessibleInterval<? extends IntegerType<?>> indexImg = labeling.getIndexImg();
+		Map<Integer, Region> setRegions = LongStream.range(0, numSlabs).parallel().mapToObj(slab -> {
+			long[] min = Intervals.minAsLongArray(interval);
+			long[] max = Intervals.maxAsLongArray(interval);
+			min[last] = interval.min(last) + slab * size / numSlabs;
+			max[last] = interval.min(last) + (slab + 1) * size / numSlabs - 1;
+			return scanSets(Views.interval(indexImg, min, max), n);
+		}).reduce(new HashMap<>(), LabelRegionIndex::mergeSets);
+		LabelingMapping<L> mapping = labeling.getMapping();
+		Map<L, Region> res = new HashMap<>();
+		setRegions.forEach((index, region) -> {
+			for (L label : mapping.labelsAtIndex(index)) {
+				res.merge(label, region.copy(), Region::add);
+			}
+		});
+		return res;
+	}
+
+	private static Map<Integer, Region> scanSets(RandomAccessibleInterval<? extends IntegerType<?>> slab, int n) {
+		Map<Integer, Region> res = new HashMap<>();
+		Cursor<? extends IntegerType<?>> cursor = Views.iterable(slab).localizingCursor();
+		// neighboring pixels mostly belong to the same label set, the region of the last set is reused
+		int lastIndex = 0;
+		Region lastRegion = null;
+		while(cursor.hasNext()) {
+			int index = cursor.next().getInteger();
+			if(index == 0) continue;
+			if(index != lastIndex || lastRegion == null) {
+				lastIndex = index;
+				lastRegion = res.computeIfAbsent(index, i -> new Region(n));
+			}
+			lastRegion.addPixel(cursor);
+		}
+		return res;
+	}
+
+	private static Map<Integer, Region> mergeSets(Map<Integer, Region> first, Map<Integer, Region> second) {
+		Map<Integer, Region> res = new HashMap<>(first);
+		second.forEach((index, region) -> res.merge(index, region, Region::add));
+		return res;
+	}
+
+	private static class Region {
+
+		private long count = 0;
+		private final double[] sum;
+		private final long[] min;
+		private final long[] max;
+
+		Region(int n) {
+			sum = new double[n];
+			min = new long[n];
+			max = new long[n];
+			for (int d = 0; d < n; d++) {
+				min[d] = Long.MAX_VALUE;
+				max[d] = Long.MIN_VALUE;
+			}
+		}
+
+		void addPixel(Cursor<?> position) {
+			count++;
+			for (int d = 0; d < sum.length; d++) {
+				long p = position.getLongPosition(d);
+				sum[d] += p;
+				if(p < min[d]) min[d] = p;
+				if(p > max[d]) max[d] = p;
+			}
+		}
+
+		Region add(Region other) {
+			count += other.count;
+			for (int d = 0; d < sum.length; d++) {
+				sum[d] += other.sum[d];
+				min[d] = Math.min(min[d], other.min[d]);
+				max[d] = Math.max(max[d], other.max[d]);
+			}
+			return this;
+		}
+
+		/**
+		 * Removes the pixels of {@code other} from the size and centroid, the bounding box is kept.
+		 */
+		void remove(Region other) {
+			count -= other.count;
+			for (int d = 0; d < sum.length; d++) {
+				sum[d] -= other.sum[d];
+			}
+		}
+
+		Region copy() {
+			return new Region(sum.length).add(this);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.roi.labeling.LabelingMapping;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Reverse index from each label to the indices of the {@link LabelingMapping} label sets containing it.
+ * Label sets of a mapping are never removed or changed once created, therefore updating the index
+ * only needs to look at the sets added since the last update.
+ */
+public class LabelSetIndex<L> {
+
+	private static final int[] NONE = new int[0];
+
+	private final LabelingMapping<L> mapping;
+	private final Map<L, Sets> index = new HashMap<>();
+	private int numIndexedSets = 0;
+
+	public LabelSetIndex(LabelingMapping<L> mapping) {
+		this.mapping = mapping;
+		update();
+	}
+
+	/**
+	 * Indexes all label sets which were added to the mapping since the last update, in parallel.
+	 */
+	public synchronized void update() {
+		int numSets = mapping.numSets();
+		if(numSets <= numIndexedSets) return;
+		Map<L, Sets> added = IntStream.range(numIndexedSets, numSets).parallel().collect(
+				() -> new HashMap<L, Sets>(),
+				(map, i) -> mapping.labelsAtIndex(i).forEach(label -> map.computeIfAbsent(label, l -> new Sets()).add(i)),
+				(map1, map2) -> map2.forEach((label, sets) -> map1.merge(label, sets, Sets::addAll)));
+		added.forEach((label, sets) -> index.merge(label, sets, Sets::addAll));
+		numIndexedSets = numSets;
+	}
+
+	/**
+	 * @return the ascending indices of all label sets containing {@code label}. The array must not be modified.
+	 */
+	public synchronized int[] get(L label) {
+		update();
+		Sets res = index.get(label);
+		return res == null ? NONE : res.toArray();
+	}
+
+	/**
+	 * Growable array of label set indices, so adding sets to a label does not copy all of its previous sets.
+	 * Arrays handed out by {@link #toArray()} are never written to afterwards.
+	 */
+	private static final class Sets {
+
+		private int[] indices = new int[2];
+		private int size = 0;
+		private int[] array;
+
+		void add(int i) {
+			ensureCapacity(size + 1);
+			indices[size++] = i;
+			array = null;
+		}
+
+		Sets addAll(Sets other) {
+			ensureCapacity(size + other.size);
+			System.arraycopy(other.indices, 0, indices, size, other.size);
+			size += other.size;
+			array = null;
+			return this;
+		}
+
+		int[] toArray() {
+			if(array == null) array = size == indices.length ? indices : Arrays.copyOf(indices, size);
+			return array;
+		}
+
+		private void ensureCapacity(int capacity) {
+			// a full array might have been handed out, growing always copies it
+			if(capacity > indices.length) indices = Arrays.copyOf(indices, Math.max(capacity, indices.length * 2));
+		}
+	}
+}
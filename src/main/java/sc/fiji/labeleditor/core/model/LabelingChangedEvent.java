@@ -28,5 +28,13 @@
  */
 package sc.fiji.labeleditor.core.model;
 
+import net.imglib2.Interval;
+
 public class LabelingChangedEvent<L> {
+
+	/**
+	 * The part of the labeling which changed, or null if unknown
+	 */
+	public Interval interval;
+
 }
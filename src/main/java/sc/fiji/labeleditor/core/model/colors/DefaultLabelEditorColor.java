@@ -55,6 +55,11 @@ public class DefaultLabelEditorColor implements LabelEditorColor {
 		return colorMapping.apply(value);
 	}
 
+	@Override
+	public int get(double value) {
+		return get();
+	}
+
 	@Override
 	public void set(int color) {
 		this.colorMapping = v -> color;
@@ -41,6 +41,7 @@ public class DefaultLabelEditorTagColors extends HashMap<Object, LabelEditorColo
 	private final Listeners.List<ColorChangeListener> listeners = new Listeners.SynchronizedList<>();
 	private boolean listenersPaused = false;
 	private List<ColorChangedEvent> keptEvents = new ArrayList<>();
+	private volatile LabelEditorPalette palette;
 
 	public DefaultLabelEditorTagColors() {
 	}
@@ -102,6 +103,17 @@ public class DefaultLabelEditorTagColors extends HashMap<Object, LabelEditorColo
 		return returnNotNullColor(tag, target);
 	}
 
+	@Override
+	public void setPalette(LabelEditorPalette palette) {
+		this.palette = palette;
+		notifyListeners();
+	}
+
+	@Override
+	public LabelEditorPalette getPalette() {
+		return palette;
+	}
+
 	private LabelEditorColor returnNotNullColor(Object tag, LabelEditorTargetComponent target) {
 		LabelEditorColorset colorset = getColorset(tag);
 		if(colorset == null) {
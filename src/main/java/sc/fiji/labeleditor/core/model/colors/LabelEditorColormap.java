@@ -0,0 +1,98 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model.colors;
+
+import net.imglib2.type.numeric.ARGBType;
+
+/**
+ * Colors of a value range, linearly interpolated between evenly spaced stops.
+ * Used by {@link LabelEditorValueColor} to compile a gradient table.
+ */
+public class LabelEditorColormap {
+
+	public static final LabelEditorColormap VIRIDIS = fromRGB(
+			0x440154, 0x472d7b, 0x3b528b, 0x2c728e, 0x21918c, 0x28ae80, 0x5ec962, 0xaddc30, 0xfde725);
+
+	public static final LabelEditorColormap MAGMA = fromRGB(
+			0x000004, 0x1c1044, 0x4f127b, 0x812581, 0xb5367a, 0xe55064, 0xfb8761, 0xfec287, 0xfcfdbf);
+
+	private final int[] stops;
+
+	/**
+	 * @param stops ARGB colors, the first one is used for the minimum, the last one for the maximum value
+	 */
+	public LabelEditorColormap(int... stops) {
+		if(stops.length < 2) throw new IllegalArgumentException("A colormap needs at least two colors.");
+		this.stops = stops.clone();
+	}
+
+	public static LabelEditorColormap fromRGB(int... rgb) {
+		int[] stops = new int[rgb.length];
+		for (int i = 0; i < rgb.length; i++) {
+			stops[i] = 0xff000000 | rgb[i];
+		}
+		return new LabelEditorColormap(stops);
+	}
+
+	public int numStops() {
+		return stops.length;
+	}
+
+	public int getStop(int index) {
+		return stops[index];
+	}
+
+	/**
+	 * @param position between 0 (first stop) and 1 (last stop)
+	 */
+	public int get(float position) {
+		float pos = Math.max(0, Math.min(1, position)) * (stops.length - 1);
+		int stop = Math.min((int) pos, stops.length - 2);
+		return interpolate(stops[stop], stops[stop + 1], pos - stop);
+	}
+
+	/**
+	 * Samples the colormap at {@code size} evenly spaced positions, including both ends.
+	 */
+	public int[] toTable(int size) {
+		int[] table = new int[size];
+		for (int i = 0; i < size; i++) {
+			table[i] = get(size > 1 ? (float) i / (size - 1) : 0);
+		}
+		return table;
+	}
+
+	private static int interpolate(int from, int to, float pct) {
+		int r = (int) (ARGBType.red(from) + (ARGBType.red(to) - ARGBType.red(from)) * pct);
+		int g = (int) (ARGBType.green(from) + (ARGBType.green(to) - ARGBType.green(from)) * pct);
+		int b = (int) (ARGBType.blue(from) + (ARGBType.blue(to) - ARGBType.blue(from)) * pct);
+		int a = (int) (ARGBType.alpha(from) + (ARGBType.alpha(to) - ARGBType.alpha(from)) * pct);
+		return ARGBType.rgba(r, g, b, a);
+	}
+}
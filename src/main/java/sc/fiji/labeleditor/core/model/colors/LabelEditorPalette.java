@@ -0,0 +1,88 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model.colors;
+
+import net.imglib2.type.numeric.ARGBType;
+import sc.fiji.labeleditor.core.view.LabelEditorTargetComponent;
+
+import java.awt.Color;
+
+/**
+ * Face and border colors per label, indexed by label ordinal. Used instead of one tag and colorset per label
+ * to give each label of a large labeling its own color, see {@link LabelEditorTagColors#setPalette(LabelEditorPalette)}.
+ * The ordinal of a label is assigned when the label first appears in the labeling, see
+ * {@link sc.fiji.labeleditor.core.model.LabelEditorModel#getLabelOrdinal(Object)}, so labels keep their colors
+ * when other labels are added. Ordinals exceeding the palette size reuse its colors, palettes should therefore
+ * have one entry per label.
+ */
+public class LabelEditorPalette {
+
+	private static final double GOLDEN_RATIO_CONJUGATE = 0.618033988749895;
+
+	private final int[] faceColors;
+	private final int[] borderColors;
+
+	/**
+	 * @param faceColors ARGB face color of each label ordinal
+	 * @param borderColors ARGB border color of each label ordinal, same length as {@code faceColors}
+	 */
+	public LabelEditorPalette(int[] faceColors, int[] borderColors) {
+		if(faceColors.length == 0 || faceColors.length != borderColors.length) {
+			throw new IllegalArgumentException("Face and border colors need to have the same, non zero length.");
+		}
+		this.faceColors = faceColors;
+		this.borderColors = borderColors;
+	}
+
+	/**
+	 * Creates colors with hues spread by the golden ratio, so labels with consecutive ordinals
+	 * get clearly distinguishable colors. Borders use the opaque face color.
+	 */
+	public static LabelEditorPalette goldenRatio(int size, int faceAlpha) {
+		int[] faces = new int[size];
+		int[] borders = new int[size];
+		double hue = 0;
+		for (int i = 0; i < size; i++) {
+			int rgb = Color.HSBtoRGB((float) hue, 0.65f, 0.95f);
+			faces[i] = ARGBType.rgba(ARGBType.red(rgb), ARGBType.green(rgb), ARGBType.blue(rgb), faceAlpha);
+			borders[i] = 0xff000000 | rgb;
+			hue = (hue + GOLDEN_RATIO_CONJUGATE) % 1;
+		}
+		return new LabelEditorPalette(faces, borders);
+	}
+
+	public int size() {
+		return faceColors.length;
+	}
+
+	public int get(int ordinal, Object targetComponent) {
+		int[] colors = LabelEditorTargetComponent.BORDER.equals(targetComponent) ? borderColors : faceColors;
+		return colors[ordinal % colors.length];
+	}
+}
@@ -49,6 +49,15 @@ public interface LabelEditorTagColors {
 
 	LabelEditorColor getBorderColor(Object tag);
 
+	/**
+	 * Colors each label by the palette entry of its ordinal instead of by the default tag color.
+	 * Colors of other tags of a label are still mixed on top of the palette color.
+	 * @param palette the palette to use, null to use the default tag color again
+	 */
+	void setPalette(LabelEditorPalette palette);
+
+	LabelEditorPalette getPalette();
+
 	default LabelEditorColor getFocusFaceColor() {
 		return getFaceColor(LabelEditorTag.MOUSE_OVER);
 	}
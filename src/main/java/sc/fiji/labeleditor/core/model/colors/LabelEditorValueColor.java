@@ -31,15 +31,22 @@ package sc.fiji.labeleditor.core.model.colors;
 import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.RealType;
 
-import java.util.function.Function;
-
+/**
+ * Colors labels by a value. The color range is compiled into a gradient table of {@link #GRADIENT_STEPS} steps
+ * whenever the colors or the value range change, looking up a color is a table access.
+ * The value range is read when it is set, later changes of the passed values are not reflected.
+ */
 public class LabelEditorValueColor<T extends RealType<T>> implements LabelEditorColor {
+
+	public static final int GRADIENT_STEPS = 1024;
+
 	private int minColor;
 	private int maxColor;
+	private LabelEditorColormap colormap;
 	private T minVal;
 	private T maxVal;
 
-	private Function<T, Integer> colorMapping;
+	private volatile Gradient gradient;
 	private final LabelEditorColorset colorset;
 
 	public LabelEditorValueColor(LabelEditorColorset colorset) {
@@ -59,8 +66,19 @@ public class LabelEditorValueColor<T extends RealType<T>> implements LabelEditor
 
 	@Override
 	public int get(Object value) {
-		if(colorMapping == null) return 0;
-		return colorMapping.apply((T)value);
+		if(value instanceof RealType) return get(((RealType<?>) value).getRealDouble());
+		if(value instanceof Number) return get(((Number) value).doubleValue());
+		return 0;
+	}
+
+	@Override
+	public int get(double value) {
+		Gradient gradient = this.gradient;
+		if(gradient == null || Double.isNaN(value)) return 0;
+		double pos = (value - gradient.min) * gradient.scale;
+		if(pos <= 0) return gradient.table[0];
+		if(pos >= GRADIENT_STEPS) return gradient.table[GRADIENT_STEPS];
+		return gradient.table[(int) (pos + 0.5)];
 	}
 
 	@Override
@@ -79,40 +97,19 @@ public class LabelEditorValueColor<T extends RealType<T>> implements LabelEditor
 	}
 
 	protected void update() {
-		colorMapping = value -> {
-			float minR = ARGBType.red(minColor);
-			float minG = ARGBType.green(minColor);
-			float minB = ARGBType.blue(minColor);
-			float minA = ARGBType.alpha(minColor);
-			float maxR = ARGBType.red(maxColor);
-			float maxG = ARGBType.green(maxColor);
-			float maxB = ARGBType.blue(maxColor);
-			float maxA = ARGBType.alpha(maxColor);
-			float minFloat = minVal.getRealFloat();
-			float maxFloat = maxVal.getRealFloat();
-			float valueFloat = value.getRealFloat();
-			if(valueFloat < minFloat) valueFloat = minFloat;
-			if(valueFloat > maxFloat) valueFloat = maxFloat;
-			float pct = (valueFloat - minFloat)/(maxFloat - minFloat);
-			int r = (int) (minR + (maxR-minR)*pct);
-			int g = (int) (minG + (maxG-minG)*pct);
-			int b = (int) (minB + (maxB-minB)*pct);
-			int a = (int) (minA + (maxA-minA)*pct);
-			return ARGBType.rgba(r,g,b,a);
-		};
+		if(minVal != null && maxVal != null) {
+			LabelEditorColormap colors = colormap != null ? colormap : new LabelEditorColormap(minColor, maxColor);
+			gradient = new Gradient(colors.toTable(GRADIENT_STEPS + 1), minVal.getRealDouble(), maxVal.getRealDouble());
+		}
 		colorset.update();
 	}
 
 	public LabelEditorValueColor<T> setMinColor(int red, int green, int blue, int alpha) {
-		minColor = ARGBType.rgba(red, green, blue, alpha);
-		update();
-		return this;
+		return setMinColor(ARGBType.rgba(red, green, blue, alpha));
 	}
 
 	public LabelEditorValueColor<T> setMaxColor(int red, int green, int blue, int alpha) {
-		maxColor = ARGBType.rgba(red, green, blue, alpha);
-		update();
-		return this;
+		return setMaxColor(ARGBType.rgba(red, green, blue, alpha));
 	}
 
 	public LabelEditorValueColor<T> setMinValue(T val) {
@@ -129,13 +126,38 @@ public class LabelEditorValueColor<T extends RealType<T>> implements LabelEditor
 
 	public LabelEditorValueColor<T> setMinColor(int color) {
 		minColor = color;
+		colormap = null;
 		update();
 		return this;
 	}
 
 	public LabelEditorValueColor<T> setMaxColor(int color) {
 		maxColor = color;
+		colormap = null;
+		update();
+		return this;
+	}
+
+	/**
+	 * Colors the value range with a multi-stop colormap, e.g. {@link LabelEditorColormap#VIRIDIS},
+	 * instead of the min and max color.
+	 */
+	public LabelEditorValueColor<T> setColormap(LabelEditorColormap colormap) {
+		this.colormap = colormap;
 		update();
 		return this;
 	}
+
+	private static class Gradient {
+
+		private final int[] table;
+		private final double min;
+		private final double scale;
+
+		Gradient(int[] table, double min, double max) {
+			this.table = table;
+			this.min = min;
+			this.scale = max > min ? (table.length - 1) / (max - min) : 0;
+		}
+	}
 }
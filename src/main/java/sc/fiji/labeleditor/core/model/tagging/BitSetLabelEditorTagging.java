@@ -0,0 +1,541 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model.tagging;
+
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import org.scijava.listeners.Listeners;
+import org.scijava.log.LogService;
+import org.scijava.plugin.Parameter;
+import sc.fiji.labeleditor.core.model.LabelEditorModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * {@link LabelEditorTagging} storing one {@link BitSet} per tag, indexed by a dense label ordinal.
+ * Label ordinals are assigned in the order labels get tagged for the first time.
+ * Tag queries iterate the set bits of the tag instead of scanning all tagged labels.
+ * Numeric values of value tags are kept in primitive columns indexed by the same ordinal, other values and
+ * numeric values of a different type than the column of their tag are kept as objects.
+ * Adding a value to a label which already has the tag replaces its value.
+ * Reads only share a read lock, so multiple threads can query tags and values at the same time.
+ */
+public class BitSetLabelEditorTagging<L> implements LabelEditorTagging<L> {
+
+	@Parameter
+	LogService log;
+
+	private final LabelEditorModel model;
+
+	private final Map<L, Integer> labelToOrdinal = new HashMap<>();
+	private final List<L> ordinalToLabel = new ArrayList<>();
+	private final Map<Object, BitSet> tagToLabels = new LinkedHashMap<>();
+	private final Map<Object, Object[]> tagToValues = new HashMap<>();
+	private final Map<Object, ValueColumn> tagToColumn = new HashMap<>();
+
+	// renderers read tags from multiple threads while building their LUTs, they only block each other while tags are written
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Lock readLock = lock.readLock();
+	private final Lock writeLock = lock.writeLock();
+
+	private final Listeners.List<TagChangeListener> listeners = new Listeners.SynchronizedList<>();
+	private boolean listenersPaused = false;
+	private List<TagChangedEvent> keptEvents = new ArrayList<>();
+
+	public BitSetLabelEditorTagging(LabelEditorModel model) {
+		this.model = model;
+	}
+
+	@Override
+	public Listeners< TagChangeListener > listeners() {
+		return listeners;
+	}
+
+	@Override
+	public void pauseListeners() {
+		listenersPaused = true;
+	}
+
+	@Override
+	public void resumeListeners() {
+		listenersPaused = false;
+		if(keptEvents.size() > 0) {
+			listeners.list.forEach(listener -> listener.tagChanged(keptEvents));
+			keptEvents.clear();
+		}
+	}
+
+	private void notifyListeners(TagChangedEvent e) {
+		if(log!= null) log.debug(e.toString());
+		if(listenersPaused) {
+			keptEvents.add(e);
+		} else {
+			listeners.list.forEach(listener -> listener.tagChanged(Collections.singletonList(e)));
+		}
+	}
+
+	private synchronized void notifyListeners(Object tag, List<L> labels, TagChangedEvent.Action action) {
+		if(labels.isEmpty()) return;
+		TagChangedEvent e = new TagChangedEvent();
+		e.action = action;
+		e.tags = Collections.singletonList(tag);
+		e.model = model;
+		e.labels = labels;
+		notifyListeners(e);
+	}
+
+	@Override
+	public List<Object> getAllTags() {
+		readLock.lock();
+		try {
+			return new ArrayList<>(tagToLabels.keySet());
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public void addTag(Object tag) {
+		writeLock.lock();
+		try {
+			getOrCreateBits(tag);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void addTagToLabel(Object tag, L label) {
+		if(add(tag, label)) {
+			notifyListeners(tag, Collections.singletonList(label), TagChangedEvent.Action.ADDED);
+		}
+	}
+
+	@Override
+	public void addTagToLabels(Object tag, List<L> labels) {
+		List<L> added = new ArrayList<>();
+		writeLock.lock();
+		try {
+			for (L label : labels) {
+				if(add(tag, label)) added.add(label);
+			}
+		} finally {
+			writeLock.unlock();
+		}
+		notifyListeners(tag, added, TagChangedEvent.Action.ADDED);
+	}
+
+	@Override
+	public void addValueToLabel(Object tag, Object value, L label) {
+		boolean added;
+		writeLock.lock();
+		try {
+			added = add(tag, label);
+			setValue(tag, value, ordinal(label));
+		} finally {
+			writeLock.unlock();
+		}
+		notifyListeners(tag, Collections.singletonList(label), added ? TagChangedEvent.Action.ADDED : TagChangedEvent.Action.CHANGED);
+	}
+
+	@Override
+	public Object getValue(Object tag, L label) {
+		readLock.lock();
+		try {
+			Integer ordinal = labelToOrdinal.get(label);
+			if(ordinal == null) return null;
+			BitSet bits = tagToLabels.get(tag);
+			if(bits == null || !bits.get(ordinal)) return null;
+			ValueColumn column = tagToColumn.get(tag);
+			if(column != null && column.has(ordinal)) return column.get(ordinal);
+			Object[] values = tagToValues.get(tag);
+			if(values == null || ordinal >= values.length || values[ordinal] == null) return true;
+			return values[ordinal];
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public double getDouble(Object tag, L label) {
+		readLock.lock();
+		try {
+			Integer ordinal = labelToOrdinal.get(label);
+			if(ordinal == null) return Double.NaN;
+			ValueColumn column = tagToColumn.get(tag);
+			if(column != null && column.has(ordinal)) return column.getDouble(ordinal);
+			Object[] values = tagToValues.get(tag);
+			if(values == null || ordinal >= values.length) return Double.NaN;
+			Object value = values[ordinal];
+			if(value instanceof RealType) return ((RealType<?>) value).getRealDouble();
+			if(value instanceof Number) return ((Number) value).doubleValue();
+			return Double.NaN;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public void addValuesToLabels(Object tag, int[] values, List<L> labels) {
+		ValueColumn.checkLength(values.length, labels.size());
+		addValues(tag, labels, ValueColumn.Ints.class, ValueColumn.Ints::new,
+				(column, ordinal, i) -> column.set(ordinal, values[i]), i -> new IntType(values[i]));
+	}
+
+	@Override
+	public void addValuesToLabels(Object tag, long[] values, List<L> labels) {
+		ValueColumn.checkLength(values.length, labels.size());
+		addValues(tag, labels, ValueColumn.Longs.class, ValueColumn.Longs::new,
+				(column, ordinal, i) -> column.set(ordinal, values[i]), i -> new LongType(values[i]));
+	}
+
+	@Override
+	public void addValuesToLabels(Object tag, float[] values, List<L> labels) {
+		ValueColumn.checkLength(values.length, labels.size());
+		addValues(tag, labels, ValueColumn.Floats.class, ValueColumn.Floats::new,
+				(column, ordinal, i) -> column.set(ordinal, values[i]), i -> new FloatType(values[i]));
+	}
+
+	@Override
+	public void addValuesToLabels(Object tag, double[] values, List<L> labels) {
+		ValueColumn.checkLength(values.length, labels.size());
+		addValues(tag, labels, ValueColumn.Doubles.class, ValueColumn.Doubles::new,
+				(column, ordinal, i) -> column.set(ordinal, values[i]), i -> new DoubleType(values[i]));
+	}
+
+	/**
+	 * Writes the i-th value into the column, or, if the tag already stores values of another type, keeps it as object.
+	 */
+	private <C extends ValueColumn> void addValues(Object tag, List<L> labels, Class<C> type, Supplier<C> factory, ColumnSetter<C> setter, IntFunction<Object> boxed) {
+		List<L> added = new ArrayList<>();
+		List<L> changed = new ArrayList<>();
+		writeLock.lock();
+		try {
+			C column = getColumn(tag, type, factory);
+			for (int i = 0; i < labels.size(); i++) {
+				L label = labels.get(i);
+				if(add(tag, label)) added.add(label);
+				else changed.add(label);
+				int ordinal = ordinal(label);
+				if(column == null) {
+					setValue(tag, boxed.apply(i), ordinal);
+				} else {
+					setter.set(column, ordinal, i);
+					clearObjectValue(tag, ordinal);
+				}
+			}
+		} finally {
+			writeLock.unlock();
+		}
+		notifyListeners(tag, added, TagChangedEvent.Action.ADDED);
+		notifyListeners(tag, changed, TagChangedEvent.Action.CHANGED);
+	}
+
+	private interface ColumnSetter<C extends ValueColumn> {
+		void set(C column, int ordinal, int index);
+	}
+
+	@Override
+	public void removeTagFromLabel(Object tag, L label) {
+		if(remove(tag, label)) {
+			notifyListeners(tag, Collections.singletonList(label), TagChangedEvent.Action.REMOVED);
+		}
+	}
+
+	@Override
+	public void removeTagFromLabels(Object tag, List<L> labels) {
+		List<L> removed = new ArrayList<>();
+		writeLock.lock();
+		try {
+			for (L label : labels) {
+				if(remove(tag, label)) removed.add(label);
+			}
+		} finally {
+			writeLock.unlock();
+		}
+		notifyListeners(tag, removed, TagChangedEvent.Action.REMOVED);
+	}
+
+	@Override
+	public void removeTagFromLabel(Object tag) {
+		List<L> labels;
+		writeLock.lock();
+		try {
+			BitSet bits = tagToLabels.get(tag);
+			if(bits == null) return;
+			labels = toLabels(bits);
+			bits.clear();
+			tagToValues.remove(tag);
+			ValueColumn column = tagToColumn.get(tag);
+			if(column != null) column.clear();
+		} finally {
+			writeLock.unlock();
+		}
+		notifyListeners(tag, labels, TagChangedEvent.Action.REMOVED);
+	}
+
+	@Override
+	public void toggleTag(Object tag, L label) {
+		if(getTags(label).contains(tag)) removeTagFromLabel(tag, label);
+		else addTagToLabel(tag, label);
+	}
+
+	@Override
+	public List<Object> getTags(L label) {
+		readLock.lock();
+		try {
+			Integer ordinal = labelToOrdinal.get(label);
+			if(ordinal == null) return Collections.emptyList();
+			List<Object> res = new ArrayList<>();
+			tagToLabels.forEach((tag, bits) -> {
+				if(bits.get(ordinal)) res.add(tag);
+			});
+			return res;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public List<L> getLabels(Object tag) {
+		readLock.lock();
+		try {
+			BitSet bits = tagToLabels.get(tag);
+			if(bits == null) return Collections.emptyList();
+			return Collections.unmodifiableList(toLabels(bits));
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public List<L> filterLabelsWithTag(List<L> labels, Object tag) {
+		readLock.lock();
+		try {
+			BitSet bits = tagToLabels.get(tag);
+			if(bits == null) return new ArrayList<>();
+			List<L> res = new ArrayList<>();
+			for (L label : labels) {
+				Integer ordinal = labelToOrdinal.get(label);
+				if(ordinal != null && bits.get(ordinal)) res.add(label);
+			}
+			return res;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public List filterLabelsWithTag(Object tag) {
+		readLock.lock();
+		try {
+			BitSet bits = tagToLabels.get(tag);
+			if(bits == null) return new ArrayList<>();
+			return toLabels(bits);
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public List filterLabelsWithAnyTag(List<L> labels, Set<Object> tags) {
+		readLock.lock();
+		try {
+			BitSet any = union(tags);
+			List<L> res = new ArrayList<>();
+			for (L label : labels) {
+				Integer ordinal = labelToOrdinal.get(label);
+				if(ordinal != null && any.get(ordinal)) res.add(label);
+			}
+			return res;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public List filterLabelsWithAnyTag(Set<Object> tags) {
+		readLock.lock();
+		try {
+			return toLabels(union(tags));
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	private BitSet union(Set<Object> tags) {
+		BitSet res = new BitSet();
+		for (Object tag : tags) {
+			BitSet bits = tagToLabels.get(tag);
+			if(bits != null) res.or(bits);
+		}
+		return res;
+	}
+
+	private boolean add(Object tag, L label) {
+		writeLock.lock();
+		try {
+			BitSet bits = getOrCreateBits(tag);
+			int ordinal = ordinal(label);
+			if(bits.get(ordinal)) return false;
+			bits.set(ordinal);
+			return true;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	private boolean remove(Object tag, L label) {
+		writeLock.lock();
+		try {
+			Integer ordinal = labelToOrdinal.get(label);
+			if(ordinal == null) return false;
+			BitSet bits = tagToLabels.get(tag);
+			if(bits == null || !bits.get(ordinal)) return false;
+			bits.clear(ordinal);
+			Object[] values = tagToValues.get(tag);
+			if(values != null && ordinal < values.length) values[ordinal] = null;
+			ValueColumn column = tagToColumn.get(tag);
+			if(column != null) column.clear(ordinal);
+			return true;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * @return the value column of {@code tag}, which is created if the tag has none yet,
+	 * or null if the tag already stores values of another type
+	 */
+	private <C extends ValueColumn> C getColumn(Object tag, Class<C> type, Supplier<C> factory) {
+		ValueColumn column = tagToColumn.get(tag);
+		if(column == null) {
+			C res = factory.get();
+			tagToColumn.put(tag, res);
+			return res;
+		}
+		return type.isInstance(column) ? type.cast(column) : null;
+	}
+
+	private BitSet getOrCreateBits(Object tag) {
+		return tagToLabels.computeIfAbsent(tag, t -> new BitSet());
+	}
+
+	/**
+	 * Stores the value in the column of the tag if it fits, as object otherwise, and drops the other copy.
+	 */
+	private void setValue(Object tag, Object value, int ordinal) {
+		if(setTypedValue(tag, value, ordinal)) {
+			clearObjectValue(tag, ordinal);
+			return;
+		}
+		ValueColumn column = tagToColumn.get(tag);
+		if(column != null) column.clear(ordinal);
+		setObjectValue(tag, value, ordinal);
+	}
+
+	private void setObjectValue(Object tag, Object value, int ordinal) {
+		Object[] values = tagToValues.get(tag);
+		if(values == null) {
+			values = new Object[Math.max(ordinalToLabel.size(), 16)];
+		} else if(ordinal >= values.length) {
+			values = Arrays.copyOf(values, Math.max(ordinal + 1, values.length * 2));
+		}
+		values[ordinal] = value;
+		tagToValues.put(tag, values);
+	}
+
+	private void clearObjectValue(Object tag, int ordinal) {
+		Object[] values = tagToValues.get(tag);
+		if(values != null && ordinal < values.length) values[ordinal] = null;
+	}
+
+	private boolean setTypedValue(Object tag, Object value, int ordinal) {
+		if(value instanceof IntType || value instanceof Integer) {
+			ValueColumn.Ints column = getColumn(tag, ValueColumn.Ints.class, ValueColumn.Ints::new);
+			if(column == null) return false;
+			column.set(ordinal, value instanceof IntType ? ((IntType) value).get() : (Integer) value, !(value instanceof IntType));
+			return true;
+		}
+		if(value instanceof LongType || value instanceof Long) {
+			ValueColumn.Longs column = getColumn(tag, ValueColumn.Longs.class, ValueColumn.Longs::new);
+			if(column == null) return false;
+			column.set(ordinal, value instanceof LongType ? ((LongType) value).get() : (Long) value, !(value instanceof LongType));
+			return true;
+		}
+		if(value instanceof FloatType || value instanceof Float) {
+			ValueColumn.Floats column = getColumn(tag, ValueColumn.Floats.class, ValueColumn.Floats::new);
+			if(column == null) return false;
+			column.set(ordinal, value instanceof FloatType ? ((FloatType) value).get() : (Float) value, !(value instanceof FloatType));
+			return true;
+		}
+		if(value instanceof DoubleType || value instanceof Double) {
+			ValueColumn.Doubles column = getColumn(tag, ValueColumn.Doubles.class, ValueColumn.Doubles::new);
+			if(column == null) return false;
+			column.set(ordinal, value instanceof DoubleType ? ((DoubleType) value).get() : (Double) value, !(value instanceof DoubleType));
+			return true;
+		}
+		return false;
+	}
+
+	private int ordinal(L label) {
+		Integer ordinal = labelToOrdinal.get(label);
+		if(ordinal == null) {
+			ordinal = ordinalToLabel.size();
+			ordinalToLabel.add(label);
+			labelToOrdinal.put(label, ordinal);
+		}
+		return ordinal;
+	}
+
+	private List<L> toLabels(BitSet bits) {
+		List<L> res = new ArrayList<>(bits.cardinality());
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+			res.add(ordinalToLabel.get(i));
+		}
+		return res;
+	}
+
+}
@@ -28,6 +28,11 @@
  */
 package sc.fiji.labeleditor.core.model.tagging;
 
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
 import org.scijava.listeners.Listeners;
 
 import java.util.List;
@@ -66,6 +71,46 @@ public interface LabelEditorTagging<L> {
 	void addValueToLabel(Object tag, Object value, L label);
 
 	Object getValue(Object tag, L label);
+
+	default void addValuesToLabels(Object tag, int[] values, List<L> labels) {
+		ValueColumn.checkLength(values.length, labels.size());
+		for (int i = 0; i < labels.size(); i++) {
+			addValueToLabel(tag, new IntType(values[i]), labels.get(i));
+		}
+	}
+
+	default void addValuesToLabels(Object tag, long[] values, List<L> labels) {
+		ValueColumn.checkLength(values.length, labels.size());
+		for (int i = 0; i < labels.size(); i++) {
+			addValueToLabel(tag, new LongType(values[i]), labels.get(i));
+		}
+	}
+
+	default void addValuesToLabels(Object tag, float[] values, List<L> labels) {
+		ValueColumn.checkLength(values.length, labels.size());
+		for (int i = 0; i < labels.size(); i++) {
+			addValueToLabel(tag, new FloatType(values[i]), labels.get(i));
+		}
+	}
+
+	default void addValuesToLabels(Object tag, double[] values, List<L> labels) {
+		ValueColumn.checkLength(values.length, labels.size());
+		for (int i = 0; i < labels.size(); i++) {
+			addValueToLabel(tag, new DoubleType(values[i]), labels.get(i));
+		}
+	}
+
+	/**
+	 * @return the value of {@code tag} for {@code label} as double,
+	 * or {@link Double#NaN} if the label has no numeric value for this tag
+	 */
+	default double getDouble(Object tag, L label) {
+		Object value = getValue(tag, label);
+		if(value instanceof RealType) return ((RealType<?>) value).getRealDouble();
+		if(value instanceof Number) return ((Number) value).doubleValue();
+		return Double.NaN;
+	}
+
 	List filterLabelsWithAnyTag(Set<Object> tags);
 
 	List filterLabelsWithTag(Object tag);
@@ -39,7 +39,11 @@ public class TagChangedEvent<L> {
 	public Action action;
 
 	public enum Action {
-		REMOVED, ADDED;
+		REMOVED, ADDED,
+		/**
+		 * The tags stayed on the labels, but their values changed
+		 */
+		CHANGED;
 	}
 
 	public String toString() {
@@ -49,6 +53,8 @@ public class TagChangedEvent<L> {
 				stringBuilder.append("Removed"); break;
 			case ADDED:
 				stringBuilder.append("Added"); break;
+			case CHANGED:
+				stringBuilder.append("Changed values of"); break;
 		}
 		stringBuilder.append(" tags ");
 		stringBuilder.append(tags);
@@ -57,6 +63,8 @@ public class TagChangedEvent<L> {
 				stringBuilder.append(" from labels "); break;
 			case ADDED:
 				stringBuilder.append(" to labels "); break;
+			case CHANGED:
+				stringBuilder.append(" of labels "); break;
 		}
 		stringBuilder.append(labels);
 		return stringBuilder.toString();
@@ -0,0 +1,184 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model.tagging;
+
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Primitive value storage of one value tag, indexed by label ordinal.
+ * {@link #present} marks the ordinals which have a value, {@link #boxed} the ones which were passed as
+ * {@link Number} and are returned as such, all others are returned as {@link net.imglib2.type.numeric.RealType}.
+ */
+abstract class ValueColumn {
+
+	final BitSet present = new BitSet();
+	final BitSet boxed = new BitSet();
+
+	abstract double getDouble(int ordinal);
+
+	/**
+	 * @return the value boxed into the class it was passed as
+	 */
+	abstract Object get(int ordinal);
+
+	boolean has(int ordinal) {
+		return present.get(ordinal);
+	}
+
+	void clear(int ordinal) {
+		present.clear(ordinal);
+		boxed.clear(ordinal);
+	}
+
+	void clear() {
+		present.clear();
+		boxed.clear();
+	}
+
+	void setPresent(int ordinal, boolean isBoxed) {
+		present.set(ordinal);
+		boxed.set(ordinal, isBoxed);
+	}
+
+	static void checkLength(int numValues, int numLabels) {
+		if(numValues != numLabels) {
+			throw new IllegalArgumentException("Got " + numValues + " values for " + numLabels + " labels");
+		}
+	}
+
+	static int capacity(int length, int ordinal) {
+		return Math.max(ordinal + 1, Math.max(16, length * 2));
+	}
+
+	static class Ints extends ValueColumn {
+		private int[] values = new int[0];
+
+		void set(int ordinal, int value) {
+			set(ordinal, value, false);
+		}
+
+		void set(int ordinal, int value, boolean isBoxed) {
+			if(ordinal >= values.length) values = Arrays.copyOf(values, capacity(values.length, ordinal));
+			values[ordinal] = value;
+			setPresent(ordinal, isBoxed);
+		}
+
+		@Override
+		double getDouble(int ordinal) {
+			return has(ordinal) ? values[ordinal] : Double.NaN;
+		}
+
+		@Override
+		Object get(int ordinal) {
+			if(!has(ordinal)) return null;
+			return boxed.get(ordinal) ? Integer.valueOf(values[ordinal]) : new IntType(values[ordinal]);
+		}
+	}
+
+	static class Longs extends ValueColumn {
+		private long[] values = new long[0];
+
+		void set(int ordinal, long value) {
+			set(ordinal, value, false);
+		}
+
+		void set(int ordinal, long value, boolean isBoxed) {
+			if(ordinal >= values.length) values = Arrays.copyOf(values, capacity(values.length, ordinal));
+			values[ordinal] = value;
+			setPresent(ordinal, isBoxed);
+		}
+
+		@Override
+		double getDouble(int ordinal) {
+			return has(ordinal) ? values[ordinal] : Double.NaN;
+		}
+
+		@Override
+		Object get(int ordinal) {
+			if(!has(ordinal)) return null;
+			return boxed.get(ordinal) ? Long.valueOf(values[ordinal]) : new LongType(values[ordinal]);
+		}
+	}
+
+	static class Floats extends ValueColumn {
+		private float[] values = new float[0];
+
+		void set(int ordinal, float value) {
+			set(ordinal, value, false);
+		}
+
+		void set(int ordinal, float value, boolean isBoxed) {
+			if(ordinal >= values.length) values = Arrays.copyOf(values, capacity(values.length, ordinal));
+			values[ordinal] = value;
+			setPresent(ordinal, isBoxed);
+		}
+
+		@Override
+		double getDouble(int ordinal) {
+			return has(ordinal) ? values[ordinal] : Double.NaN;
+		}
+
+		@Override
+		Object get(int ordinal) {
+			if(!has(ordinal)) return null;
+			return boxed.get(ordinal) ? Float.valueOf(values[ordinal]) : new FloatType(values[ordinal]);
+		}
+	}
+
+	static class Doubles extends ValueColumn {
+		private double[] values = new double[0];
+
+		void set(int ordinal, double value) {
+			set(ordinal, value, false);
+		}
+
+		void set(int ordinal, double value, boolean isBoxed) {
+			if(ordinal >= values.length) values = Arrays.copyOf(values, capacity(values.length, ordinal));
+			values[ordinal] = value;
+			setPresent(ordinal, isBoxed);
+		}
+
+		@Override
+		double getDouble(int ordinal) {
+			return has(ordinal) ? values[ordinal] : Double.NaN;
+		}
+
+		@Override
+		Object get(int ordinal) {
+			if(!has(ordinal)) return null;
+			return boxed.get(ordinal) ? Double.valueOf(values[ordinal]) : new DoubleType(values[ordinal]);
+		}
+	}
+}
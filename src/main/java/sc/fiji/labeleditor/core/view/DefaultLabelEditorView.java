@@ -39,6 +39,7 @@ import sc.fiji.labeleditor.core.model.colors.ColorChangedEvent;
 import sc.fiji.labeleditor.core.model.tagging.TagChangedEvent;
 import sc.fiji.labeleditor.plugin.renderers.BorderLabelEditorRenderer;
 import sc.fiji.labeleditor.plugin.renderers.DefaultLabelEditorRenderer;
+import sc.fiji.labeleditor.plugin.renderers.FusedLabelEditorRenderer;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -53,6 +54,7 @@ public class DefaultLabelEditorView<L> implements LabelEditorView<L> {
 	private final List<LabelEditorRenderer<L>> renderers = new ArrayList<>();
 	private final Listeners.List<ViewChangeListener> listeners = new Listeners.SynchronizedList<>();
 	private boolean listenersPaused = false;
+	private boolean fuseFacesAndBorders = false;
 
 	public DefaultLabelEditorView(LabelEditorModel<L> model) {
 		this.model = model;
@@ -62,12 +64,23 @@ public class DefaultLabelEditorView<L> implements LabelEditorView<L> {
 		notifyListeners();
 	}
 
-	private void onColorChange(List<ColorChangedEvent> colorChangedEvents) {
-		updateRenderers();
+	private synchronized void onColorChange(List<ColorChangedEvent> colorChangedEvents) {
+		renderers.forEach(renderer -> {
+			if(renderer.isActive()) renderer.updateOnColorChange();
+		});
+		notifyListeners();
 	}
 
-	private void onTagChange(List<TagChangedEvent> tagChangedEvent) {
-		updateRenderers();
+	private synchronized void onTagChange(List<TagChangedEvent> tagChangedEvents) {
+		boolean changed = false;
+		for (LabelEditorRenderer<L> renderer : renderers) {
+			if(!renderer.isActive()) continue;
+			long version = renderer.getVersion();
+			renderer.updateOnTagChange(tagChangedEvents);
+			if(version < 0 || version != renderer.getVersion()) changed = true;
+		}
+		// e.g. hovering labels without a mouse over color does not require repainting
+		if(changed) notifyListeners();
 	}
 
 	public synchronized void updateRenderers() {
@@ -103,15 +116,30 @@ public class DefaultLabelEditorView<L> implements LabelEditorView<L> {
 	public void addDefaultRenderers() {
 		renderers.clear();
 		if(context == null) {
-			add(new DefaultLabelEditorRenderer<>());
-			add(new BorderLabelEditorRenderer<>());
+			if(fuseFacesAndBorders) {
+				add(new FusedLabelEditorRenderer<>());
+			} else {
+				add(new DefaultLabelEditorRenderer<>());
+				add(new BorderLabelEditorRenderer<>());
+			}
 		} else {
 			List<PluginInfo<?>> pluginInfos = context.getPluginIndex().get(LabelEditorRenderer.class);
 			Collections.reverse(pluginInfos);
+			if(fuseFacesAndBorders) {
+				pluginInfos.removeIf(info -> info.getClassName().equals(DefaultLabelEditorRenderer.class.getName())
+						|| info.getClassName().equals(BorderLabelEditorRenderer.class.getName()));
+				FusedLabelEditorRenderer<L> fused = new FusedLabelEditorRenderer<>();
+				if(fused.canDisplay(model)) add(fused);
+			}
 			pluginInfos.forEach(this::add);
 		}
 	}
 
+	@Override
+	public void setFuseFacesAndBorders(boolean fuse) {
+		this.fuseFacesAndBorders = fuse;
+	}
+
 	private void add(PluginInfo<?> renderer) {
 		try {
 			LabelEditorRenderer<L> instance = (LabelEditorRenderer<L>) renderer.createInstance();
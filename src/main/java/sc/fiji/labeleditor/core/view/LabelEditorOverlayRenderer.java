@@ -34,4 +34,10 @@ import sc.fiji.labeleditor.core.model.LabelEditorModel;
 
 public interface LabelEditorOverlayRenderer<L> extends LabelEditorRenderer<L> {
 	void init(LabelEditorModel<L> model, RandomAccessibleInterval<? extends ARGBType> screenImage);
+
+	/**
+	 * Binds the renderer to a new screen image of the index source, keeping everything computed for the model.
+	 * The renderer has to be initialized with {@link #init(LabelEditorModel, RandomAccessibleInterval)} before.
+	 */
+	void setScreenImage(RandomAccessibleInterval<? extends ARGBType> screenImage);
 }
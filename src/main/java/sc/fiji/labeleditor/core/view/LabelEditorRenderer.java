@@ -33,11 +33,35 @@ import net.imglib2.type.numeric.ARGBType;
 import org.scijava.plugin.Plugin;
 import org.scijava.plugin.SciJavaPlugin;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.tagging.TagChangedEvent;
+
+import java.util.List;
 
 public interface LabelEditorRenderer<L> extends SciJavaPlugin {
 
 	void updateOnTagChange();
+
+	/**
+	 * Called with the tag changes of the model. Renderers which are able to update only
+	 * the labels affected by the events can override this, the default performs a full update.
+	 */
+	default void updateOnTagChange(List<TagChangedEvent> events) {
+		updateOnTagChange();
+	}
+	default void updateOnColorChange() {
+		updateOnTagChange();
+	}
+
 	void updateOnLabelingChange();
+
+	/**
+	 * @return a number which changes whenever the output of this renderer changes,
+	 * or -1 if the renderer does not keep track of its changes
+	 */
+	default long getVersion() {
+		return -1;
+	}
+
 	void setActive(boolean active);
 	boolean isActive();
 
@@ -42,6 +42,13 @@ public interface LabelEditorView<L> {
 
 	void addDefaultRenderers();
 
+	/**
+	 * Whether {@link #addDefaultRenderers()} adds one renderer drawing faces and borders of the labels
+	 * instead of one renderer for each of them.
+	 */
+	default void setFuseFacesAndBorders(boolean fuse) {
+	}
+
 	void add(LabelEditorRenderer<L> renderer);
 
 	void setActive(LabelEditorRenderer<?> renderer, boolean active);
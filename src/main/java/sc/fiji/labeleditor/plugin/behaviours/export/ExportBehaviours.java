@@ -42,11 +42,11 @@ import org.scijava.ui.behaviour.ClickBehaviour;
 import org.scijava.ui.behaviour.util.Behaviours;
 import sc.fiji.labeleditor.core.controller.InteractiveLabeling;
 import sc.fiji.labeleditor.core.controller.LabelEditorBehaviours;
+import sc.fiji.labeleditor.core.model.LabelEditorModel;
 import sc.fiji.labeleditor.core.view.LabelEditorRenderer;
 import sc.fiji.labeleditor.plugin.table.LabelEditorTable;
 
 import java.awt.*;
-import java.util.ArrayList;
 import java.util.List;
 
 public class ExportBehaviours implements LabelEditorBehaviours {
@@ -104,14 +104,14 @@ public class ExportBehaviours implements LabelEditorBehaviours {
 	}
 
 	public <T extends RealType<T>> RandomAccessibleInterval<IntType> getLabelMap() {
-		RandomAccessibleInterval<LabelingType<T>> labeling = interactiveLabeling.model().labeling();
+		LabelEditorModel<T> model = (LabelEditorModel<T>) interactiveLabeling.model();
+		RandomAccessibleInterval<LabelingType<T>> labeling = model.labeling();
 		Converter<LabelingType<T>, IntType> converter = (i, o) -> {
 			if(i.size() == 0) {
 				o.setZero();
 				return;
 			}
-			List<T> sortedLabels = new ArrayList<>(i);
-			sortedLabels.sort(interactiveLabeling.model().getLabelComparator());
+			List<T> sortedLabels = model.getSortedLabels(i.getIndex().getInteger());
 			try {
 				o.set((int) sortedLabels.get(0).getRealFloat());
 			} catch(ClassCastException e) {
@@ -29,30 +29,26 @@
 package sc.fiji.labeleditor.plugin.behaviours.export;
 
 import net.imagej.ops.OpService;
+import net.imglib2.Cursor;
 import net.imglib2.Interval;
 import net.imglib2.Point;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
-import net.imglib2.img.Img;
-import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.roi.labeling.ImgLabeling;
-import net.imglib2.roi.labeling.LabelRegion;
-import net.imglib2.roi.labeling.LabelRegionCursor;
-import net.imglib2.roi.labeling.LabelRegions;
 import net.imglib2.roi.labeling.LabelingType;
-import net.imglib2.type.numeric.integer.IntType;
-import net.imglib2.util.Intervals;
+import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.view.Views;
 import org.scijava.plugin.Parameter;
 import org.scijava.ui.UIService;
 import org.scijava.ui.behaviour.Behaviour;
 import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
+import sc.fiji.labeleditor.core.model.IndexImgs;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
 
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 public class ExportLabels<L> implements Behaviour {
 
@@ -71,20 +67,10 @@ public class ExportLabels<L> implements Behaviour {
 	public void exportSelected() {
 		List<L> selected = model.tagging().getLabels(LabelEditorTag.SELECTED);
 
-		LabelRegions<L> regions = new LabelRegions<>(model.labeling());
-		Map<L, LabelRegion<L>> regionList = new HashMap<>();
+		Interval boundingBox = model.getRegionIndex().getUnionBoundingBox(selected);
+		if(boundingBox == null) return;
 
-		selected.forEach(label -> regionList.put(label, regions.getLabelRegion(label)));
-		Interval boundingBox = null;
-		for (LabelRegion<L> region : regionList.values()) {
-			if (boundingBox == null) {
-				boundingBox = region;
-			} else {
-				boundingBox = Intervals.union(boundingBox, region);
-			}
-		}
-
-		ImgLabeling<L, IntType> cropLabeling = createCroppedLabeling(selected, boundingBox, regionList);
+		ImgLabeling<L, ? extends IntegerType<?>> cropLabeling = createCroppedLabeling(new HashSet<>(selected), boundingBox);
 
 		LabelEditorModel<L> exportModel;
 		if(model.getData() != null) {
@@ -106,24 +92,24 @@ public class ExportLabels<L> implements Behaviour {
 		return ops.copy().rai(Views.zeroMin(Views.interval(model.getData(), boundingBox)));
 	}
 
-	private ImgLabeling<L, IntType> createCroppedLabeling(List<L> labels, Interval boundingBox, Map<L, LabelRegion<L>> regionList) {
-		Img<IntType> backing = new ArrayImgFactory<>(new IntType()).create( boundingBox );
-		ImgLabeling<L, IntType> cropLabeling = new ImgLabeling<>(backing);
+	private ImgLabeling<L, ? extends IntegerType<?>> createCroppedLabeling(Set<L> labels, Interval boundingBox) {
+		// the cropped label sets are subsets of the label sets of the model
+		ImgLabeling<L, ? extends IntegerType<?>> cropLabeling = IndexImgs.createLabeling(boundingBox, model.labeling().getMapping().numSets());
 		Point offset = new Point(boundingBox.numDimensions());
 		for (int i = 0; i < boundingBox.numDimensions(); i++) {
 			offset.setPosition(-boundingBox.min(i), i);
 		}
+		Cursor<LabelingType<L>> inCursor = Views.interval(model.labeling(), boundingBox).localizingCursor();
 		RandomAccess<LabelingType<L>> outRA = cropLabeling.randomAccess();
-		labels.forEach(label -> {
-			LabelRegion<L> region = regionList.get(label);
-			LabelRegionCursor inCursor = region.localizingCursor();
-			while(inCursor.hasNext()) {
-				inCursor.next();
-				outRA.setPosition(inCursor);
-				outRA.move(offset);
-				outRA.get().add(label);
+		while(inCursor.hasNext()) {
+			LabelingType<L> pixel = inCursor.next();
+			if(pixel.isEmpty()) continue;
+			outRA.setPosition(inCursor);
+			outRA.move(offset);
+			for (L label : pixel) {
+				if(labels.contains(label)) outRA.get().add(label);
 			}
-		});
+		}
 		return cropLabeling;
 	}
 }
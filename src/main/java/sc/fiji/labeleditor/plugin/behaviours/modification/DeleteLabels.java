@@ -28,13 +28,16 @@
  */
 package sc.fiji.labeleditor.plugin.behaviours.modification;
 
+import net.imglib2.Interval;
 import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.roi.Regions;
 import net.imglib2.roi.labeling.LabelRegions;
 import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.view.Views;
 import org.scijava.ui.behaviour.Behaviour;
 import sc.fiji.labeleditor.core.controller.InteractiveLabeling;
+import sc.fiji.labeleditor.core.model.LabelRegionIndex;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
 
 import java.util.List;
@@ -50,8 +53,27 @@ public class DeleteLabels<L> implements Behaviour {
 	public void deleteSelected() {
 		List<L> selected = labeling.model().tagging().getLabels(LabelEditorTag.SELECTED);
 		selected.forEach(label -> labeling.model().tagging().removeTagFromLabel(LabelEditorTag.SELECTED, label));
-		delete(selected, labeling.getLabelingInScope());
-		labeling.model().notifyLabelingListeners();
+		// each label set containing a deleted label can result in a new set without the label
+		long numSets = labeling.model().labeling().getMapping().numSets();
+		for (L label : selected) {
+			numSets += labeling.model().getLabelSetIndices(label).length;
+		}
+		labeling.model().ensureIndexCapacity(numSets);
+		RandomAccessibleInterval<LabelingType<L>> scope = labeling.getLabelingInScope();
+		if(scope == labeling.model().labeling()) {
+			// the region index knows where the labels are, each label is only edited and rescanned within its own bounding box
+			LabelRegionIndex<L> regionIndex = labeling.model().getRegionIndex();
+			for (L label : selected) {
+				Interval box = regionIndex.getBoundingBox(label);
+				if(box == null) continue;
+				regionIndex.update(box, () -> Views.interval(scope, box).forEach(pixel -> pixel.remove(label)));
+				labeling.model().notifyLabelingListeners(box);
+			}
+		} else {
+			// the changed interval is only known in model coordinates if the whole labeling is in scope
+			delete(selected, scope);
+			labeling.model().notifyLabelingListeners(null);
+		}
 	}
 
 	private static <L> void delete(List<L> labels, RandomAccessibleInterval<LabelingType<L>> labeling) {
@@ -28,12 +28,15 @@
  */
 package sc.fiji.labeleditor.plugin.behaviours.modification;
 
+import net.imglib2.Interval;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.roi.Regions;
 import net.imglib2.roi.labeling.LabelRegions;
 import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.view.Views;
 import org.scijava.ui.behaviour.Behaviour;
 import sc.fiji.labeleditor.core.controller.InteractiveLabeling;
+import sc.fiji.labeleditor.core.model.LabelRegionIndex;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
 
 import java.util.ArrayList;
@@ -49,8 +52,36 @@ public class MergeLabels<L> implements Behaviour {
 
 	public void assignSelectedToFirst() {
 		List<L> selected = labeling.model().tagging().getLabels(LabelEditorTag.SELECTED);
-		assignToFirst(selected, labeling.getLabelingInScope());
-		labeling.model().notifyLabelingListeners();
+		if(selected.isEmpty()) return;
+		// each label set containing a merged label can result in two new sets, one without the label and one with the first label
+		long numSets = labeling.model().labeling().getMapping().numSets();
+		for (L label : selected) {
+			numSets += 2L * labeling.model().getLabelSetIndices(label).length;
+		}
+		labeling.model().ensureIndexCapacity(numSets);
+		RandomAccessibleInterval<LabelingType<L>> scope = labeling.getLabelingInScope();
+		L first = selected.iterator().next();
+		if(scope == labeling.model().labeling()) {
+			// the region index knows where the labels are, each label is only edited and rescanned within its own bounding box
+			LabelRegionIndex<L> regionIndex = labeling.model().getRegionIndex();
+			for (L label : selected) {
+				if(label.equals(first)) continue;
+				Interval box = regionIndex.getBoundingBox(label);
+				if(box == null) continue;
+				regionIndex.update(box, () -> assignToFirst(label, first, Views.interval(scope, box)));
+				labeling.model().notifyLabelingListeners(box);
+			}
+		} else {
+			// the changed interval is only known in model coordinates if the whole labeling is in scope
+			assignToFirst(selected, scope);
+			labeling.model().notifyLabelingListeners(null);
+		}
+	}
+
+	private static <L> void assignToFirst(L label, L first, RandomAccessibleInterval<LabelingType<L>> box) {
+		Views.iterable(box).forEach(ls -> {
+			if(ls.remove(label)) ls.add(first);
+		});
 	}
 
 	private static <L> void assignToFirst(List<L> labels, RandomAccessibleInterval<LabelingType<L>> labeling) {
@@ -59,6 +59,7 @@ import org.scijava.ui.behaviour.Behaviour;
 import sc.fiji.labeleditor.application.InteractiveWatershedCommand;
 import sc.fiji.labeleditor.core.controller.InteractiveLabeling;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelRegionIndex;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
 
 import java.util.HashSet;
@@ -95,10 +96,11 @@ public class SplitLabels<L> implements Behaviour {
 	}
 
 	public <T extends NativeType<T>> void splitInteractively(L label) throws ExecutionException, InterruptedException {
-		LabelRegions<L> regions = new LabelRegions<>(labeling.model().labeling());
-		LabelRegion<L> region = regions.getLabelRegion(label);
-		ImgLabeling<L, IntType> cropLabeling = createCroppedLabeling(label, region);
-		RandomAccessibleInterval data = createCroppedData(region);
+		LabelRegionIndex<L> regionIndex = labeling.model().getRegionIndex();
+		Interval boundingBox = regionIndex.getBoundingBox(label);
+		if(boundingBox == null) return;
+		ImgLabeling<L, IntType> cropLabeling = createCroppedLabeling(label, boundingBox);
+		RandomAccessibleInterval data = createCroppedData(boundingBox);
 		CommandModule out = commandService.run(
 				InteractiveWatershedCommand.class, true,
 				"labeling", cropLabeling,
@@ -122,21 +124,21 @@ public class SplitLabels<L> implements Behaviour {
 //		Set<L> newlabels = split(label, model.labels(), model.getData(), 1, opService);
 	}
 
-	private RandomAccessibleInterval createCroppedData(LabelRegion<L> region) {
-		return opService.copy().rai(Views.zeroMin(Views.interval(labeling.model().getData(), region)));
+	private RandomAccessibleInterval createCroppedData(Interval boundingBox) {
+		return opService.copy().rai(Views.zeroMin(Views.interval(labeling.model().getData(), boundingBox)));
 	}
 
-	private ImgLabeling<L, IntType> createCroppedLabeling(L label, LabelRegion<L> region) {
-		Img<IntType> backing = new ArrayImgFactory<>(new IntType()).create( Views.zeroMin(region) );
-		ImgLabeling<L, IntType> cropLabeling = new ImgLabeling<>(backing);
-		Point offset = new Point(region.numDimensions());
-		for (int i = 0; i < region.numDimensions(); i++) {
-			offset.setPosition(-region.min(i), i);
+	private ImgLabeling<L, IntType> createCroppedLabeling(L label, Interval boundingBox) {
+		// the crop is edited directly by the watershed command, which adds label sets without announcing them
+		ImgLabeling<L, IntType> cropLabeling = new ImgLabeling<>(new ArrayImgFactory<>(new IntType()).create(boundingBox));
+		Point offset = new Point(boundingBox.numDimensions());
+		for (int i = 0; i < boundingBox.numDimensions(); i++) {
+			offset.setPosition(-boundingBox.min(i), i);
 		}
-		LabelRegionCursor inCursor = region.localizingCursor();
+		Cursor<LabelingType<L>> inCursor = Views.interval(labeling.model().labeling(), boundingBox).localizingCursor();
 		RandomAccess<LabelingType<L>> outRA = cropLabeling.randomAccess();
 		while(inCursor.hasNext()) {
-			inCursor.next();
+			if(!inCursor.next().contains(label)) continue;
 			outRA.setPosition(inCursor);
 			outRA.move(offset);
 			outRA.get().add(label);
@@ -85,11 +85,8 @@ public class ConflictSelectionBehaviours<L> extends SelectionBehaviours<L> {
 
 	private Set<L> getConflictingLabels(L label) {
 		Set<L> res = new HashSet<>();
-		for (int i = 0; i < labeling.model().labeling().getMapping().numSets(); i++) {
-			Set<L> labelset = labeling.model().labeling().getMapping().labelsAtIndex(i);
-			if(labelset.contains(label)) {
-				res.addAll(labelset);
-			}
+		for (int i : labeling.model().getLabelSetIndices(label)) {
+			res.addAll(labeling.model().labeling().getMapping().labelsAtIndex(i));
 		}
 		return res;
 	}
@@ -173,6 +173,9 @@ public class SelectionBehaviours<L> implements SelectionModel< L >, LabelEditorB
 
 	protected L getFirst(LabelingType<L> labels) {
 		if(labels.size() == 0) return null;
+		if(labels.getMapping() == labeling.model().labeling().getMapping()) {
+			return labeling.model().getSortedLabels(labels.getIndex().getInteger()).get(0);
+		}
 		List<L> orderedLabels = new ArrayList<>(labels);
 		orderedLabels.sort(labeling.model().getLabelComparator());
 		return orderedLabels.get(0);
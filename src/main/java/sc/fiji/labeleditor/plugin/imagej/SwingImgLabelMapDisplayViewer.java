@@ -84,14 +84,14 @@ public class SwingImgLabelMapDisplayViewer<I extends IntegerType<I>> extends Eas
 			for (int i = 0; i < labelMap.dimension(labelMap.numDimensions()-1); i++) {
 				labelings.add(Views.hyperSlice(labelMap, labelMap.numDimensions()-1, i));
 			}
-			panel = makePanel(labelings, labelMap.getRaws());
+			panel = makePanel(labelings, labelMap.getRaws(), labelMap.isWrapped());
 		} else {
-			panel = makePanel(labelMap);
+			panel = makePanel(labelMap, labelMap.isWrapped());
 		}
 		return panel;
 	}
 
-	private LabelEditorBdvPanel makePanel(List<RandomAccessibleInterval<? extends IntegerType<?>>> labelings, List<RandomAccessibleInterval<? extends RealType<?>>> rest) {
+	private LabelEditorBdvPanel makePanel(List<RandomAccessibleInterval<? extends IntegerType<?>>> labelings, List<RandomAccessibleInterval<? extends RealType<?>>> rest, boolean wrap) {
 		BdvOptions options = new BdvOptions();
 		if(labelings.get(0).numDimensions() == 2
 				|| (labelings.get(0).numDimensions() > 2
@@ -104,13 +104,18 @@ public class SwingImgLabelMapDisplayViewer<I extends IntegerType<I>> extends Eas
 			source.setDisplayRange(0, 255);
 		}
 		for (RandomAccessibleInterval<? extends IntegerType<?>> labelMap : labelings) {
-			DefaultLabelEditorModel<IntType> model = DefaultLabelEditorModel.initFromLabelMap(labelMap);
+			DefaultLabelEditorModel<IntType> model = createModel(labelMap, wrap);
 			setRandomColors(model);
 			panel.add(model);
 		}
 		return panel;
 	}
 
+	private DefaultLabelEditorModel<IntType> createModel(RandomAccessibleInterval<? extends IntegerType<?>> labelMap, boolean wrap) {
+		if(wrap) return DefaultLabelEditorModel.wrapLabelMap(labelMap);
+		return DefaultLabelEditorModel.initFromLabelMap(labelMap);
+	}
+
 	private void setRandomColors(DefaultLabelEditorModel model) {
 		double split1 = random.nextDouble();
 		double split2 = random.nextDouble();
@@ -122,14 +127,14 @@ public class SwingImgLabelMapDisplayViewer<I extends IntegerType<I>> extends Eas
 		model.colors().getSelectedBorderColor().set(0xffffffff);
 	}
 
-	private <I extends IntegerType<I>> LabelEditorBdvPanel makePanel(RandomAccessibleInterval<I> labelMap) {
+	private <I extends IntegerType<I>> LabelEditorBdvPanel makePanel(RandomAccessibleInterval<I> labelMap, boolean wrap) {
 		BdvOptions options = new BdvOptions();
 		if(labelMap.numDimensions() == 2
 				|| (labelMap.numDimensions() > 2
 				&& labelMap.dimension(2) == 1)) {
 			options.is2D();
 		}
-		DefaultLabelEditorModel<IntType> model = DefaultLabelEditorModel.initFromLabelMap(labelMap);
+		DefaultLabelEditorModel<IntType> model = createModel(labelMap, wrap);
 		LabelEditorBdvPanel panel = new LabelEditorBdvPanel(context, options);
 		panel.add(model);
 		return panel;
@@ -29,6 +29,7 @@
 package sc.fiji.labeleditor.plugin.interfaces.bdv;
 
 import bdv.BigDataViewer;
+import bdv.cache.CacheControl;
 import bdv.tools.brightness.ConverterSetup;
 import bdv.util.AxisOrder;
 import bdv.util.Bdv;
@@ -41,6 +42,9 @@ import bdv.util.ConstantRandomAccessible;
 import bdv.util.PlaceHolderConverterSetup;
 import bdv.util.RandomAccessibleIntervalSource;
 import bdv.util.RandomAccessibleIntervalSource4D;
+import bdv.util.volatiles.SharedQueue;
+import bdv.util.volatiles.VolatileView;
+import bdv.util.volatiles.VolatileViews;
 import bdv.viewer.ConverterSetups;
 import bdv.viewer.Source;
 import bdv.viewer.SourceAndConverter;
@@ -57,9 +61,12 @@ import net.imglib2.Point;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.RealPoint;
+import net.imglib2.Volatile;
 import net.imglib2.converter.Converter;
+import net.imglib2.cache.img.CachedCellImg;
 import net.imglib2.converter.Converters;
 import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.roi.labeling.ImgLabeling;
 import net.imglib2.roi.labeling.LabelingType;
 import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.IntegerType;
@@ -68,7 +75,6 @@ import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.integer.UnsignedByteType;
 import net.imglib2.type.volatiles.VolatileARGBType;
 import net.imglib2.util.Intervals;
-import net.imglib2.util.Util;
 import org.scijava.Context;
 import org.scijava.plugin.Parameter;
 import org.scijava.ui.behaviour.io.InputTriggerConfig;
@@ -77,7 +83,9 @@ import sc.fiji.labeleditor.core.controller.DefaultInteractiveLabeling;
 import sc.fiji.labeleditor.core.controller.InteractiveLabeling;
 import sc.fiji.labeleditor.core.controller.LabelEditorBehaviours;
 import sc.fiji.labeleditor.core.controller.LabelEditorInterface;
+import sc.fiji.labeleditor.core.model.BoundaryMask;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelingChangeListener;
 import sc.fiji.labeleditor.core.model.tagging.TagChangedEvent;
 import sc.fiji.labeleditor.core.view.DefaultLabelEditorView;
 import sc.fiji.labeleditor.core.view.LabelEditorView;
@@ -86,6 +94,8 @@ import sc.fiji.labeleditor.plugin.behaviours.PopupBehaviours;
 import sc.fiji.labeleditor.plugin.behaviours.modification.LabelingModificationBehaviours;
 import sc.fiji.labeleditor.plugin.behaviours.select.SelectionBehaviours;
 
+import javax.swing.*;
+
 
 public class BdvInterface implements LabelEditorInterface {
 
@@ -95,19 +105,36 @@ public class BdvInterface implements LabelEditorInterface {
 	private BdvHandle bdvHandle;
 	private final LabelEditorOverlay overlay = new LabelEditorOverlay();
 	private boolean overlayAdded = false;
+	private SharedQueue sharedQueue;
+	private final Set<CacheControl> cacheControls = new HashSet<>();
+	private final IndexScreenImageCache screenImageCache = new IndexScreenImageCache();
 
 	private final List<BdvSource> dataSources = new ArrayList<>();
 	private final Map<LabelEditorView<?>, List<BdvSource>> sources = new HashMap<>();
 	private final Map<SourceAndConverter, InteractiveLabeling<?>> indexImgSources = new HashMap<>();
 	private final Map<InteractiveLabeling<?>, Behaviours> behavioursMap = new HashMap<>();
+	private final Map<InteractiveLabeling<?>, List<LabelingChangeListener>> indexImgListeners = new HashMap<>();
 	private PopupBehaviours popupBehaviours;
 	private AccumulateProjectorFactory<ARGBType> factory;
+	private boolean fuseFacesAndBorders = false;
 
 	public BdvInterface(Context context) {
 		this.context = context;
 		factory = LabelEditorAccumulateProjector.createFactory(this);
 	}
 
+	/**
+	 * Whether labelings controlled by this interface afterwards are drawn by one renderer for faces and borders,
+	 * see {@link sc.fiji.labeleditor.plugin.renderers.FusedLabelEditorRenderer}.
+	 */
+	public void setFuseFacesAndBorders(boolean fuse) {
+		this.fuseFacesAndBorders = fuse;
+	}
+
+	public boolean isFuseFacesAndBorders() {
+		return fuseFacesAndBorders;
+	}
+
 	public void setup(BdvHandle bdvHandle) {
 		this.bdvHandle = bdvHandle;
 		popupBehaviours = new PopupBehaviours(this);
@@ -133,6 +160,7 @@ public class BdvInterface implements LabelEditorInterface {
 	public <L> DefaultInteractiveLabeling<L> control(LabelEditorModel<L> model) {
 		LabelEditorView<L> view = new DefaultLabelEditorView<>(model);
 		if(context != null) context.inject(view);
+		view.setFuseFacesAndBorders(fuseFacesAndBorders);
 		view.addDefaultRenderers();
 		return control(model, view);
 	}
@@ -158,13 +186,7 @@ public class BdvInterface implements LabelEditorInterface {
 				bdvSource.removeFromBdv();
 			}
 		}
-		for (Map.Entry<SourceAndConverter, InteractiveLabeling<?>> entry : indexImgSources.entrySet()) {
-			SourceAndConverter bdvSource = entry.getKey();
-			if(entry.getValue().equals(labeling)) {
-				indexImgSources.remove(bdvSource);
-				break;
-			}
-		}
+		removeModelIndexImage(labeling);
 		Behaviours behaviours = behavioursMap.get(labeling);
 		if(behaviours != null) {
 			behaviours.getInputTriggerMap().clear();
@@ -272,17 +294,54 @@ public class BdvInterface implements LabelEditorInterface {
 	}
 
 	private <L> BdvStackSource displayModelIndexImage(InteractiveLabeling<L> labeling) {
-		RandomAccessibleInterval<ARGBType> indexImg = convertToARGB(labeling.model().labeling().getIndexImg());
-		BdvStackSource<ARGBType> source = BdvFunctions.show(
-				indexImg,
-				getModelIndexSourceName(labeling.model()),
-				BdvOptions.options().addTo(bdvHandle));
+		ImgLabeling<L, ?> displayedLabeling = labeling.model().labeling();
+		BoundaryMask boundaryMask = labeling.model().getBoundaryMask();
+		RandomAccessibleInterval<? extends IntegerType<?>> indexImg = boundaryMask == null ?
+				displayedLabeling.getIndexImg() : boundaryMask.getFlaggedIndexImg();
+		List<LabelingChangeListener> listeners = new ArrayList<>();
+		BdvStackSource<?> source;
+		LabelPyramid pyramid = indexImg.numDimensions() <= 3 ? new LabelPyramid(indexImg, labeling.model().getSpatialDimensions()) : null;
+		if(pyramid != null && (pyramid.numLevels() > 1 || indexImg instanceof CachedCellImg)) {
+			// large labelings are shown with downsampled levels, BDV picks a coarser one when zoomed out
+			// the downsampled levels are cached, they are always loaded progressively and only recomputed where the labeling changed
+			// cached index images are shown through the pyramid as well, it recreates their volatile views after changes
+			source = BdvFunctions.show(
+					new LabelPyramidSource<>(pyramid, getModelIndexSourceName(labeling.model()), new VolatileARGBType(), this::convertToVolatileARGB),
+					BdvOptions.options().addTo(bdvHandle));
+			listeners.add(e -> {
+				pyramid.invalidate(e.interval);
+				bdvHandle.getViewerPanel().requestRepaint();
+			});
+		} else if(indexImg instanceof CachedCellImg && boundaryMask == null) {
+			// cells which are not loaded yet are transparent until the fetcher threads loaded them
+			// edits are written into the cached cells, the volatile view shows them without being recreated
+			source = BdvFunctions.show(
+					convertToVolatileARGB(indexImg),
+					getModelIndexSourceName(labeling.model()),
+					BdvOptions.options().addTo(bdvHandle));
+		} else {
+			source = BdvFunctions.show(
+					convertToARGB(indexImg),
+					getModelIndexSourceName(labeling.model()),
+					BdvOptions.options().addTo(bdvHandle));
+		}
 
 		//FIXME why was this next line there? and what is the dummy image for?
 //		final ConverterSetups setups = source.getBdvHandle().getConverterSetups();
 //		source.getSources().forEach( s -> setups.put( s, new PlaceHolderConverterSetup( 0, 0, 255, 0xffffff ) ) );
 
-		indexImgSources.put(source.getSources().get(0), labeling);
+		SourceAndConverter<?> indexSource = source.getSources().get(0);
+		indexImgSources.put(indexSource, labeling);
+		// tag changes reuse the projected index screen images, labeling changes have to project them again
+		listeners.add(e -> screenImageCache.invalidate(indexSource));
+		// models replace their labeling when its index image gets too narrow, the new index image has to be shown instead
+		listeners.add(e -> {
+			if(labeling.model().labeling() != displayedLabeling) {
+				SwingUtilities.invokeLater(() -> replaceModelIndexImage(labeling, source, listeners));
+			}
+		});
+		listeners.forEach(listener -> labeling.model().labelingListeners().add(listener));
+		indexImgListeners.put(labeling, listeners);
 		if(!overlayAdded) {
 			overlayAdded = true;
 			BdvFunctions.show(
@@ -295,13 +354,65 @@ public class BdvInterface implements LabelEditorInterface {
 		return source;
 	}
 
-	private <T extends IntegerType<T>> RandomAccessibleInterval<ARGBType> convertToARGB(RandomAccessibleInterval<T> indexImg) {
+	private synchronized <L> void replaceModelIndexImage(InteractiveLabeling<L> labeling, BdvStackSource<?> source, List<LabelingChangeListener> listeners) {
+		if(indexImgListeners.get(labeling) != listeners) return;
+		removeModelIndexImage(labeling);
+		List<BdvSource> viewSources = sources.get(labeling.view());
+		viewSources.remove(source);
+		source.removeFromBdv();
+		viewSources.add(displayModelIndexImage(labeling));
+	}
+
+	private <L> void removeModelIndexImage(InteractiveLabeling<L> labeling) {
+		List<LabelingChangeListener> listeners = indexImgListeners.remove(labeling);
+		if(listeners != null) listeners.forEach(listener -> labeling.model().labelingListeners().remove(listener));
+		for (Map.Entry<SourceAndConverter, InteractiveLabeling<?>> entry : indexImgSources.entrySet()) {
+			SourceAndConverter bdvSource = entry.getKey();
+			if(entry.getValue().equals(labeling)) {
+				indexImgSources.remove(bdvSource);
+				screenImageCache.invalidate(bdvSource);
+				break;
+			}
+		}
+	}
+
+	private <T extends IntegerType<?>> RandomAccessibleInterval<ARGBType> convertToARGB(RandomAccessibleInterval<T> indexImg) {
 		Converter<T, ARGBType> argbTypeConverter = (input, output) -> {
 			output.set(input.getInteger());
 		};
 		return Converters.convert(indexImg, argbTypeConverter, new ARGBType());
 	}
 
+	/**
+	 * Wraps cached images as volatile images loaded by the fetcher threads of this interface,
+	 * BDV requests the cells of the visible region first and repaints until all of them are loaded.
+	 * Images which are not cached are always valid.
+	 */
+	private <T extends IntegerType<?>> RandomAccessibleInterval<VolatileARGBType> convertToVolatileARGB(RandomAccessibleInterval<T> indexImg) {
+		if(indexImg instanceof CachedCellImg) {
+			RandomAccessibleInterval<Volatile<T>> volatileImg = VolatileViews.wrapAsVolatile(indexImg, getSharedQueue());
+			if(volatileImg instanceof VolatileView) {
+				CacheControl cacheControl = ((VolatileView<?, ?>) volatileImg).getVolatileViewData().getCacheControl();
+				if(cacheControls.add(cacheControl)) bdvHandle.getCacheControls().addCacheControl(cacheControl);
+			}
+			return Converters.convert(volatileImg, (input, output) -> {
+				output.setValid(input.isValid());
+				output.get().set(input.get().getInteger());
+			}, new VolatileARGBType());
+		}
+		return Converters.convert(indexImg, (input, output) -> {
+			output.setValid(true);
+			output.get().set(input.getInteger());
+		}, new VolatileARGBType());
+	}
+
+	private synchronized SharedQueue getSharedQueue() {
+		if(sharedQueue == null) {
+			sharedQueue = new SharedQueue(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+		}
+		return sharedQueue;
+	}
+
 	private <L> String getModelIndexSourceName(LabelEditorModel<L> model) {
 		return model.getName() + "_index";
 	}
@@ -315,6 +426,18 @@ public class BdvInterface implements LabelEditorInterface {
 		return factory;
 	}
 
+	public IndexScreenImageCache getScreenImageCache() {
+		return screenImageCache;
+	}
+
+	AffineTransform3D getViewerTransform() {
+		return bdvHandle.getViewerPanel().state().getViewerTransform();
+	}
+
+	int getCurrentTimepoint() {
+		return bdvHandle.getViewerPanel().state().getCurrentTimepoint();
+	}
+
 	Map<SourceAndConverter, InteractiveLabeling<?>> getIndexSources() {
 		return indexImgSources;
 	}
@@ -0,0 +1,176 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.interfaces.bdv;
+
+import bdv.viewer.SourceAndConverter;
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a copy of the index screen image BDV projected for each labeling source. When only tags or colors
+ * changed, the next frame reuses it and only applies the new LUTs, the labeling is not sampled again.
+ * Entries are keyed by source, viewer transform, timepoint and screen image interval
+ * and have to be invalidated when the labeling of a source changes.
+ * A screen image is only copied once the same key was projected twice in a row, frames rendered while
+ * panning or zooming are never copied. Each source keeps one buffer which is reused for the next copy.
+ */
+public class IndexScreenImageCache {
+
+	private final Map<SourceAndConverter<?>, Entry> entries = new HashMap<>();
+	private final Map<SourceAndConverter<?>, Long> generations = new HashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	synchronized RandomAccessibleInterval<ARGBType> get(Key key) {
+		Entry entry = entries.get(key.source);
+		if(entry == null || !key.equals(entry.key)) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return Views.translate(entry.buffer, key.min);
+	}
+
+	/**
+	 * Stores a copy of the screen image if the previous screen image of the source was projected with the same key,
+	 * unless the source was invalidated after the key was created.
+	 */
+	synchronized void put(Key key, RandomAccessibleInterval<? extends ARGBType> screenImage) {
+		if(key.generation != generation(key.source)) return;
+		Entry entry = entries.computeIfAbsent(key.source, source -> new Entry());
+		if(key.equals(entry.key)) return;
+		if(!key.equals(entry.lastProjected)) {
+			// the viewer is probably moving, the screen image would not be used again
+			entry.lastProjected = key;
+			return;
+		}
+		entry.buffer = copy(screenImage, entry.buffer);
+		entry.key = key;
+	}
+
+	public synchronized void invalidate(SourceAndConverter<?> source) {
+		generations.put(source, generation(source) + 1);
+		Entry entry = entries.get(source);
+		if(entry != null) {
+			// the buffer is kept for the next copy
+			entry.key = null;
+			entry.lastProjected = null;
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	synchronized Key key(SourceAndConverter<?> source, AffineTransform3D viewerTransform, int timepoint, Interval screenImage) {
+		return new Key(source, generation(source), viewerTransform.getRowPackedCopy(), timepoint,
+				Intervals.minAsLongArray(screenImage), Intervals.maxAsLongArray(screenImage));
+	}
+
+	private long generation(SourceAndConverter<?> source) {
+		return generations.getOrDefault(source, 0L);
+	}
+
+	private static ArrayImg<ARGBType, IntArray> copy(RandomAccessibleInterval<? extends ARGBType> screenImage, ArrayImg<ARGBType, IntArray> buffer) {
+		long[] dimensions = Intervals.dimensionsAsLongArray(screenImage);
+		ArrayImg<ARGBType, IntArray> res = buffer != null && Arrays.equals(dimensions, Intervals.dimensionsAsLongArray(buffer)) ?
+				buffer : ArrayImgs.argbs(dimensions);
+		Cursor<? extends ARGBType> in = Views.flatIterable(screenImage).cursor();
+		Cursor<ARGBType> out = res.cursor();
+		while(in.hasNext()) {
+			out.next().set(in.next());
+		}
+		return res;
+	}
+
+	private static class Entry {
+		private Key key;
+		private Key lastProjected;
+		private ArrayImg<ARGBType, IntArray> buffer;
+	}
+
+	static class Key {
+
+		private final SourceAndConverter<?> source;
+		private final long generation;
+		private final double[] transform;
+		private final int timepoint;
+		private final long[] min;
+		private final long[] max;
+
+		private Key(SourceAndConverter<?> source, long generation, double[] transform, int timepoint, long[] min, long[] max) {
+			this.source = source;
+			this.generation = generation;
+			this.transform = transform;
+			this.timepoint = timepoint;
+			this.min = min;
+			this.max = max;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			Key key = (Key) o;
+			return source == key.source && generation == key.generation && timepoint == key.timepoint
+					&& Arrays.equals(transform, key.transform) && Arrays.equals(min, key.min) && Arrays.equals(max, key.max);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = Objects.hash(System.identityHashCode(source), generation, timepoint);
+			result = 31 * result + Arrays.hashCode(transform);
+			result = 31 * result + Arrays.hashCode(min);
+			result = 31 * result + Arrays.hashCode(max);
+			return result;
+		}
+	}
+}
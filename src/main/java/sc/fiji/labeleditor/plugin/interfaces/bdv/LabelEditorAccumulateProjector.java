@@ -39,16 +39,25 @@ import java.util.concurrent.ExecutorService;
 import net.imglib2.Cursor;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.realtransform.AffineTransform3D;
 import net.imglib2.type.numeric.ARGBType;
 import sc.fiji.labeleditor.core.controller.InteractiveLabeling;
 import sc.fiji.labeleditor.core.view.LabelEditorOverlayRenderer;
 import sc.fiji.labeleditor.core.view.LabelEditorRenderer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 
 public class LabelEditorAccumulateProjector extends AccumulateProjector<ARGBType, ARGBType> {
+    // fixed point transmittance of the overlays, TRANSPARENT means no overlay covers the pixel
+    private static final int TRANSPARENT = 1 << 16;
+    private static final long OPAQUE_WEIGHT = 255L * TRANSPARENT;
+
     private final int indexFirstLabeling;
+    private final BdvInterface bdvInterface;
+    private final Frame frame;
 
     static AccumulateProjectorFactory<ARGBType> createFactory(BdvInterface bdvInterface) {
         return new AccumulateProjectorFactory<ARGBType>() {
@@ -61,44 +70,84 @@ public class LabelEditorAccumulateProjector extends AccumulateProjector<ARGBType
                     final RandomAccessibleInterval<ARGBType> targetScreenImage,
                     final int numThreads,
                     final ExecutorService executorService) {
-                return new LabelEditorAccumulateProjector(bdvInterface, sourceProjectors, sources, sourceScreenImages, targetScreenImage, numThreads, executorService);
+                Frame frame = new Frame(bdvInterface, sources, sourceProjectors, sourceScreenImages, targetScreenImage);
+                return new LabelEditorAccumulateProjector(bdvInterface, frame, targetScreenImage, numThreads, executorService);
             }
         };
     }
 
     private LabelEditorAccumulateProjector(
             final BdvInterface bdvInterface,
-            final List<VolatileProjector> sourceProjectors,
-            final List<SourceAndConverter<?>> sources,
-            final List<? extends RandomAccessible<? extends ARGBType>> sourceScreenImages,
+            final Frame frame,
             final RandomAccessibleInterval<ARGBType> target,
             final int numThreads,
             final ExecutorService executorService) {
-        super(labelEditorProjectors(bdvInterface, sources, sourceProjectors),
-                labelEditorScreenImages(bdvInterface, sources, sourceScreenImages),
-                target, numThreads, executorService);
-        indexFirstLabeling = firstLabelingIndex(bdvInterface, sources);
+        super(frame.projectors, frame.screenImages, target, numThreads, executorService);
+        this.bdvInterface = bdvInterface;
+        this.frame = frame;
+        indexFirstLabeling = frame.indexFirstLabeling;
     }
 
-    private static ArrayList<? extends RandomAccessible<? extends ARGBType>> labelEditorScreenImages(
-            BdvInterface bdvInterface,
-            List<SourceAndConverter<?>> sources,
-            List<? extends RandomAccessible<? extends ARGBType>> sourceScreenImages) {
+    @Override
+    public void map(final boolean clearUntouchedTargetPixels) {
+        super.map(clearUntouchedTargetPixels);
+        // only completely loaded screen images of the frame's viewer transform can be reused
+        if(!isValid() || frame.missed.isEmpty()) return;
+        if(!Arrays.equals(frame.viewerTransform.getRowPackedCopy(), bdvInterface.getViewerTransform().getRowPackedCopy())) return;
+        for (Map.Entry<IndexScreenImageCache.Key, RandomAccessibleInterval<? extends ARGBType>> entry : frame.missed.entrySet()) {
+            bdvInterface.getScreenImageCache().put(entry.getKey(), entry.getValue());
+        }
+        frame.missed.clear();
+    }
 
-        ArrayList<RandomAccessible<? extends ARGBType>> res = new ArrayList<>();
-        ArrayList<RandomAccessible<? extends ARGBType>> resLabeling = new ArrayList<>();
-
-        for (int i = 0; i < sources.size(); i++) {
-            SourceAndConverter<?> source = sources.get(i);
-            RandomAccessibleInterval<? extends ARGBType> screenImage = (RandomAccessibleInterval<? extends ARGBType>) sourceScreenImages.get(i);
-            if(bdvInterface.getIndexSources().containsKey(source)) {
-                resLabeling.addAll(getRendererSourcesForLabeling(screenImage, bdvInterface.getIndexSources().get(sources.get(i))));
-            } else {
-                res.add(screenImage);
+    /**
+     * Sorts the sources of a frame. Labeling sources are moved to the end and replaced by the outputs
+     * of their overlay renderers. A labeling source whose index screen image is cached for the current
+     * viewer transform is not projected again, its renderers read the cached screen image.
+     */
+    private static class Frame {
+
+        private final List<VolatileProjector> projectors = new ArrayList<>();
+        private final List<RandomAccessible<? extends ARGBType>> screenImages = new ArrayList<>();
+        private final Map<IndexScreenImageCache.Key, RandomAccessibleInterval<? extends ARGBType>> missed = new HashMap<>();
+        private final AffineTransform3D viewerTransform;
+        private final int indexFirstLabeling;
+
+        Frame(BdvInterface bdvInterface,
+              List<SourceAndConverter<?>> sources,
+              List<VolatileProjector> sourceProjectors,
+              List<? extends RandomAccessible<? extends ARGBType>> sourceScreenImages,
+              RandomAccessibleInterval<ARGBType> target) {
+            IndexScreenImageCache cache = bdvInterface.getScreenImageCache();
+            viewerTransform = bdvInterface.getViewerTransform();
+            int timepoint = bdvInterface.getCurrentTimepoint();
+            List<VolatileProjector> rendererProjectors = new ArrayList<>();
+            List<RandomAccessible<? extends ARGBType>> rendererScreenImages = new ArrayList<>();
+            for (int i = 0; i < sources.size(); i++) {
+                SourceAndConverter<?> source = sources.get(i);
+                RandomAccessibleInterval<? extends ARGBType> screenImage = (RandomAccessibleInterval<? extends ARGBType>) sourceScreenImages.get(i);
+                InteractiveLabeling<?> labeling = bdvInterface.getIndexSources().get(source);
+                if(labeling == null) {
+                    projectors.add(sourceProjectors.get(i));
+                    screenImages.add(screenImage);
+                    continue;
+                }
+                IndexScreenImageCache.Key key = cache.key(source, viewerTransform, timepoint, target);
+                RandomAccessibleInterval<ARGBType> cached = cache.get(key);
+                if(cached != null) {
+                    rendererScreenImages.addAll(getRendererSourcesForLabeling(cached, labeling));
+                } else {
+                    // all renderers of a labeling read the screen image of the same projector,
+                    // it has to be mapped only once per frame, also while its cells are still loading
+                    rendererProjectors.add(sourceProjectors.get(i));
+                    rendererScreenImages.addAll(getRendererSourcesForLabeling(screenImage, labeling));
+                    missed.put(key, screenImage);
+                }
             }
+            indexFirstLabeling = screenImages.size();
+            projectors.addAll(rendererProjectors);
+            screenImages.addAll(rendererScreenImages);
         }
-        res.addAll(resLabeling);
-        return res;
     }
 
     private synchronized static <L> ArrayList<RandomAccessible<? extends ARGBType>> getRendererSourcesForLabeling(
@@ -109,68 +158,37 @@ public class LabelEditorAccumulateProjector extends AccumulateProjector<ARGBType
             if (!renderer.isActive()) continue;
             if (LabelEditorOverlayRenderer.class.isAssignableFrom(renderer.getClass())) {
                 LabelEditorOverlayRenderer<L> overlayRenderer = (LabelEditorOverlayRenderer<L>) renderer;
-                overlayRenderer.init(labeling.model(), screenImage);
-                overlayRenderer.updateOnTagChange();
+                // the LUT is kept up to date by the view, a new frame only needs the new screen image
+                if(overlayRenderer.model() != labeling.model()) {
+                    overlayRenderer.init(labeling.model(), screenImage);
+                } else {
+                    overlayRenderer.setScreenImage(screenImage);
+                }
                 res.add(overlayRenderer.getOutput());
             }
         }
         return res;
     }
 
-    private static List<VolatileProjector> labelEditorProjectors(
-            BdvInterface bdvInterface,
-            List<SourceAndConverter<?>> sources,
-            List<VolatileProjector> sourceProjectors) {
-
-
-        // sort out sources belonging to labelings and order the associated projects to the end of the list
-        List<VolatileProjector> allProjectors = new ArrayList<>();
-        List<VolatileProjector> rendererProjectors = new ArrayList<>();
-
-        for (int i = 0; i < sources.size(); i++) {
-
-            SourceAndConverter<?> source = sources.get(i);
-            if(bdvInterface.getIndexSources().containsKey(source)) {
-                InteractiveLabeling<?> labeling = bdvInterface.getIndexSources().get(source);
-                for (LabelEditorRenderer<?> renderer : labeling.view().renderers()) {
-                    if (LabelEditorOverlayRenderer.class.isAssignableFrom(renderer.getClass())) {
-                        rendererProjectors.add(sourceProjectors.get(i));
-                    }
-                }
-            } else {
-                allProjectors.add(sourceProjectors.get(i));
-            }
-        }
-        allProjectors.addAll(rendererProjectors);
-        return allProjectors;
-    }
-
-    private static int firstLabelingIndex(
-            BdvInterface bdvInterface,
-            List<SourceAndConverter<?>> sources) {
-        int nonLabelingProjectors = 0;
-        for (SourceAndConverter<?> source : sources) {
-            if (!bdvInterface.getIndexSources().containsKey(source)) {
-                nonLabelingProjectors++;
-            }
-        }
-        return nonLabelingProjectors;
-    }
-
     @Override
     protected void accumulate(final Cursor<? extends ARGBType>[] accesses, final ARGBType target) {
+        target.set(composite(accesses, indexFirstLabeling));
+    }
+
+    /**
+     * Composites the overlays of the labelings over the additively accumulated data sources.
+     * The overlays are accumulated premultiplied with the transmittance left by the overlays above them,
+     * in integer arithmetic. Pixels without any label only sum up the data sources.
+     */
+    static int composite(final Cursor<? extends ARGBType>[] accesses, final int indexFirstLabeling) {
         // accumulate sources additively
         int aSum = 0, rSum = 0, gSum = 0, bSum = 0;
         for (int i = 0; i < indexFirstLabeling; i++) {
             final int value = accesses[i].get().get();
-            final int a = ARGBType.alpha(value);
-            final int r = ARGBType.red(value);
-            final int g = ARGBType.green(value);
-            final int b = ARGBType.blue(value);
-            aSum += a;
-            rSum += r;
-            gSum += g;
-            bSum += b;
+            aSum += ARGBType.alpha(value);
+            rSum += ARGBType.red(value);
+            gSum += ARGBType.green(value);
+            bSum += ARGBType.blue(value);
         }
         if (aSum > 255)
             aSum = 255;
@@ -181,33 +199,31 @@ public class LabelEditorAccumulateProjector extends AccumulateProjector<ARGBType
         if (bSum > 255)
             bSum = 255;
 
-        float alpha = 0, red = 0, green = 0, blue = 0;
-
         // accumulate labeleditor tag colors as overlay
+        long red = 0, green = 0, blue = 0;
+        int transmittance = TRANSPARENT;
         for (int i = accesses.length - 1; i >= indexFirstLabeling; i--) {
             final int value = accesses[i].get().get();
-            final float newalpha = ((float) ARGBType.alpha(value)) / 255.f;
-            final float newred = ARGBType.red(value);
-            final float newgreen = ARGBType.green(value);
-            final float newblue = ARGBType.blue(value);
-            if (alpha < 0.0001 && newalpha < 0.0001) continue;
-            if (newgreen + newred + newblue < 0.0001) continue;
-            red = (red * alpha + newred * newalpha * (1 - alpha)) / (alpha + newalpha * (1 - alpha));
-            green = (green * alpha + newgreen * newalpha * (1 - alpha)) / (alpha + newalpha * (1 - alpha));
-            blue = (blue * alpha + newblue * newalpha * (1 - alpha)) / (alpha + newalpha * (1 - alpha));
-            alpha = alpha + newalpha * (1 - alpha);
+            final int alpha = value >>> 24;
+            // overlays without alpha or without color don't change the pixel
+            if (alpha == 0 || (value & 0xffffff) == 0) continue;
+            final long weight = (long) alpha * transmittance;
+            red += ARGBType.red(value) * weight;
+            green += ARGBType.green(value) * weight;
+            blue += ARGBType.blue(value) * weight;
+            transmittance = transmittance * (255 - alpha) / 255;
+        }
+
+        if (transmittance == TRANSPARENT) {
+            // no labeling contributes to this pixel
+            return ARGBType.rgba(rSum * aSum / 255, gSum * aSum / 255, bSum * aSum / 255, 255);
         }
 
         // concatenate additive sources with overlay tag colors
-        final float newalpha = ((float) aSum) / 255.f;
-        red = (red * alpha + (float) rSum * newalpha * (1 - alpha)) / (alpha + newalpha * (1 - alpha));
-        green = (green * alpha + (float) gSum * newalpha * (1 - alpha)) / (alpha + newalpha * (1 - alpha));
-        blue = (blue * alpha + (float) bSum * newalpha * (1 - alpha)) / (alpha + newalpha * (1 - alpha));
-        alpha = alpha + newalpha * (1 - alpha);
-
-        float perc = alpha;
-//        System.out.println(red*perc + ":" + green*perc + ":" + blue*perc + ":" + 255);
-        target.set(ARGBType.rgba(red*perc, green*perc, blue*perc, 255));
-//        target.set(ARGBType.rgba(red, green, blue, alpha));
+        final long weight = (long) aSum * transmittance;
+        red += rSum * weight;
+        green += gSum * weight;
+        blue += bSum * weight;
+        return ARGBType.rgba((int) (red / OPAQUE_WEIGHT), (int) (green / OPAQUE_WEIGHT), (int) (blue / OPAQUE_WEIGHT), 255);
     }
 }
@@ -103,10 +103,19 @@ public class LabelEditorBdvPanel extends JPanel implements Disposable {
 	public <L> InteractiveLabeling<L> add(LabelEditorModel<L> model, BdvOptions options) {
 		LabelEditorView<L> view = new DefaultLabelEditorView<>(model);
 		if(context != null) context.inject(view);
+		view.setFuseFacesAndBorders(interfaceInstance.isFuseFacesAndBorders());
 		view.addDefaultRenderers();
 		return add(model, view, options);
 	}
 
+	/**
+	 * Whether labelings added afterwards are drawn by one renderer for faces and borders,
+	 * see {@link BdvInterface#setFuseFacesAndBorders(boolean)}.
+	 */
+	public void setFuseFacesAndBorders(boolean fuse) {
+		interfaceInstance.setFuseFacesAndBorders(fuse);
+	}
+
 	public <L> InteractiveLabeling<L> add(LabelEditorModel<L> model, LabelEditorView<L> view) {
 		return add(model, view, new BdvOptions());
 	}
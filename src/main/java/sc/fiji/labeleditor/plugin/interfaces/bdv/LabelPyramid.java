@@ -0,0 +1,265 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.interfaces.bdv;
+
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.cache.img.CachedCellImg;
+import net.imglib2.cache.img.ReadOnlyCachedCellImgFactory;
+import net.imglib2.cache.img.ReadOnlyCachedCellImgOptions;
+import net.imglib2.cache.img.SingleCellArrayImg;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+import sc.fiji.labeleditor.core.model.BoundaryMask;
+
+import java.util.stream.IntStream;
+
+/**
+ * Downsampled versions of an index image, each level halving the downsampled dimensions of the previous level.
+ * A pixel of a coarser level gets the most frequent label set index of the pixels it covers, where the
+ * background index 0 only wins if no label is covered, so small labels don't disappear when zooming out.
+ * Boundary flags (see {@link BoundaryMask}) are kept if any covered pixel of the chosen index is flagged.
+ * Levels are computed lazily per cell and cached in memory, after editing the index image only the cells
+ * covering the changed interval are recomputed. The full resolution level can have any integer type,
+ * the downsampled levels are {@link IntType} images.
+ */
+class LabelPyramid {
+
+	private static final int MAX_COARSEST_SIZE = 512;
+	private static final int CELL_SIZE = 64;
+
+	private final RandomAccessibleInterval<? extends IntegerType<?>> base;
+	private final long[] offset;
+	private final long[][] dimensions;
+	private final int[][] factors;
+	private final RandomAccessibleInterval<? extends IntegerType<?>>[] levels;
+	private volatile int version;
+
+	/**
+	 * Downsamples all dimensions of {@code base}.
+	 */
+	LabelPyramid(RandomAccessibleInterval<? extends IntegerType<?>> base) {
+		this(base, IntStream.range(0, base.numDimensions()).toArray());
+	}
+
+	/**
+	 * @param base the full resolution index image, levels are added until no downsampled dimension is larger than {@value #MAX_COARSEST_SIZE}
+	 * @param downsampledDimensions the spatial dimensions of {@code base}, other dimensions like time or channels keep their size on all levels
+	 */
+	LabelPyramid(RandomAccessibleInterval<? extends IntegerType<?>> base, int... downsampledDimensions) {
+		// zero min images are kept as they are, so cached index images can be wrapped as volatile images
+		this.base = Views.isZeroMin(base) ? base : Views.zeroMin(base);
+		this.offset = Intervals.minAsLongArray(base);
+		int n = base.numDimensions();
+		boolean[] downsampled = new boolean[n];
+		for (int d : downsampledDimensions) {
+			if(d < n) downsampled[d] = true;
+		}
+		int numLevels = 1;
+		for (long size = maxDimension(base, downsampled); size > MAX_COARSEST_SIZE; size = (size + 1) / 2) {
+			numLevels++;
+		}
+		dimensions = new long[numLevels][];
+		factors = new int[numLevels][];
+		dimensions[0] = Intervals.dimensionsAsLongArray(base);
+		factors[0] = new int[n];
+		for (int d = 0; d < n; d++) factors[0][d] = 1;
+		for (int level = 1; level < numLevels; level++) {
+			dimensions[level] = new long[n];
+			factors[level] = new int[n];
+			for (int d = 0; d < n; d++) {
+				boolean halved = downsampled[d] && dimensions[level - 1][d] > 1;
+				dimensions[level][d] = halved ? (dimensions[level - 1][d] + 1) / 2 : dimensions[level - 1][d];
+				factors[level][d] = halved ? factors[level - 1][d] * 2 : factors[level - 1][d];
+			}
+		}
+		levels = new RandomAccessibleInterval[numLevels];
+		levels[0] = this.base;
+		ReadOnlyCachedCellImgOptions options = ReadOnlyCachedCellImgOptions.options()
+				.cellDimensions(CELL_SIZE)
+				.volatileAccesses(true);
+		for (int level = 1; level < numLevels; level++) {
+			RandomAccessibleInterval<? extends IntegerType<?>> previous = levels[level - 1];
+			long[] previousDimensions = dimensions[level - 1];
+			boolean[] halved = new boolean[n];
+			for (int d = 0; d < n; d++) halved[d] = factors[level][d] != factors[level - 1][d];
+			levels[level] = new ReadOnlyCachedCellImgFactory(options).create(dimensions[level], new IntType(),
+					cell -> downsample(previous, previousDimensions, halved, (SingleCellArrayImg<IntType, ?>) cell));
+		}
+	}
+
+	private static long maxDimension(RandomAccessibleInterval<?> img, boolean[] downsampled) {
+		long res = 0;
+		for (int d = 0; d < img.numDimensions(); d++) {
+			if(downsampled[d]) res = Math.max(res, img.dimension(d));
+		}
+		return res;
+	}
+
+	int numLevels() {
+		return dimensions.length;
+	}
+
+	/**
+	 * @return how many pixels of the full resolution image one pixel of {@code level} covers in each dimension
+	 */
+	int[] getFactors(int level) {
+		return factors[level];
+	}
+
+	/**
+	 * @return the min of the full resolution image, all levels are zero min
+	 * and have to be translated by it in addition to their scaling
+	 */
+	long[] getOffset() {
+		return offset;
+	}
+
+	RandomAccessibleInterval<? extends IntegerType<?>> getLevel(int level) {
+		return levels[level];
+	}
+
+	/**
+	 * Increased by {@link #invalidate(Interval)}, views of the levels which cache pixels themselves have to be recreated when it changes.
+	 */
+	int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Drops the cells of the downsampled levels covering {@code changed}, they get recomputed from the current base image on next access.
+	 * @param changed the changed interval in coordinates of the base image, or null to drop all cells
+	 */
+	synchronized void invalidate(Interval changed) {
+		int n = offset.length;
+		long[] min = new long[n];
+		long[] max = new long[n];
+		for (int level = 1; level < levels.length; level++) {
+			CachedCellImg<?, ?> img = (CachedCellImg<?, ?>) levels[level];
+			if(changed == null) {
+				img.getCache().invalidateAll();
+				continue;
+			}
+			boolean empty = false;
+			for (int d = 0; d < n; d++) {
+				// boundary flags of the neighbors of changed pixels might change as well
+				min[d] = Math.max(0, changed.min(d) - offset[d] - 1) / factors[level][d];
+				max[d] = Math.min(dimensions[0][d] - 1, changed.max(d) - offset[d] + 1) / factors[level][d];
+				if(min[d] > max[d]) empty = true;
+			}
+			if(!empty) invalidateCells(img, min, max);
+		}
+		version++;
+	}
+
+	private static void invalidateCells(CachedCellImg<?, ?> img, long[] min, long[] max) {
+		CellGrid grid = img.getCellGrid();
+		int n = grid.numDimensions();
+		long[] gridDimensions = grid.getGridDimensions();
+		long[] gridMin = new long[n];
+		long[] gridMax = new long[n];
+		for (int d = 0; d < n; d++) {
+			gridMin[d] = min[d] / grid.cellDimension(d);
+			gridMax[d] = max[d] / grid.cellDimension(d);
+		}
+		long[] position = gridMin.clone();
+		while(true) {
+			img.getCache().invalidate(IntervalIndexer.positionToIndex(position, gridDimensions));
+			int d = 0;
+			while(d < n && position[d] == gridMax[d]) {
+				position[d] = gridMin[d];
+				d++;
+			}
+			if(d == n) return;
+			position[d]++;
+		}
+	}
+
+	private static void downsample(RandomAccessibleInterval<? extends IntegerType<?>> source, long[] sourceDimensions, boolean[] halved, SingleCellArrayImg<IntType, ?> cell) {
+		int n = sourceDimensions.length;
+		RandomAccess<? extends IntegerType<?>> ra = source.randomAccess();
+		long[] min = new long[n];
+		long[] max = new long[n];
+		long[] position = new long[n];
+		int[] values = new int[1 << n];
+		int[] flagged = new int[1 << n];
+		Cursor<IntType> cursor = cell.localizingCursor();
+		while(cursor.hasNext()) {
+			cursor.fwd();
+			for (int d = 0; d < n; d++) {
+				min[d] = halved[d] ? cursor.getLongPosition(d) * 2 : cursor.getLongPosition(d);
+				max[d] = halved[d] ? Math.min(min[d] + 1, sourceDimensions[d] - 1) : min[d];
+			}
+			int count = 0;
+			System.arraycopy(min, 0, position, 0, n);
+			while(true) {
+				ra.setPosition(position);
+				int value = ra.get().getInteger();
+				values[count] = BoundaryMask.indexOf(value);
+				flagged[count] = BoundaryMask.isBoundary(value) ? value : 0;
+				count++;
+				int d = 0;
+				while(d < n && position[d] == max[d]) {
+					position[d] = min[d];
+					d++;
+				}
+				if(d == n) break;
+				position[d]++;
+			}
+			cursor.get().set(mode(values, flagged, count));
+		}
+	}
+
+	private static int mode(int[] values, int[] flagged, int count) {
+		int best = 0;
+		int bestCount = 0;
+		for (int i = 0; i < count; i++) {
+			int value = values[i];
+			if(value == 0) continue;
+			int valueCount = 0;
+			for (int j = 0; j < count; j++) {
+				if(values[j] == value) valueCount++;
+			}
+			if(valueCount > bestCount) {
+				best = value;
+				bestCount = valueCount;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			if(values[i] == best && flagged[i] != 0) return flagged[i];
+		}
+		return best;
+	}
+}
@@ -0,0 +1,141 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.interfaces.bdv;
+
+import bdv.viewer.Interpolation;
+import bdv.viewer.Source;
+import mpicbg.spim.data.sequence.FinalVoxelDimensions;
+import mpicbg.spim.data.sequence.VoxelDimensions;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.converter.Converters;
+import net.imglib2.interpolation.randomaccess.NearestNeighborInterpolatorFactory;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.NumericType;
+import net.imglib2.view.Views;
+
+import java.util.function.Function;
+
+/**
+ * Shows the levels of a {@link LabelPyramid} as mipmap levels of a single BDV source, so BDV samples
+ * coarser index images when zoomed out. The index values are passed on unchanged as ARGB values
+ * and are never interpolated, the renderers therefore work the same on every level.
+ * The levels can be converted to {@link net.imglib2.type.volatiles.VolatileARGBType} to be loaded progressively.
+ */
+class LabelPyramidSource<T extends NumericType<T>> implements Source<T> {
+
+	private final LabelPyramid pyramid;
+	private final String name;
+	private final T type;
+	private final Function<RandomAccessibleInterval<? extends IntegerType<?>>, RandomAccessibleInterval<T>> converter;
+	private final AffineTransform3D[] transforms;
+	private final int[] convertedVersions;
+	private final RandomAccessibleInterval<T>[] converted;
+	private final VoxelDimensions voxelDimensions = new FinalVoxelDimensions("pixel", 1, 1, 1);
+
+	static LabelPyramidSource<ARGBType> create(LabelPyramid pyramid, String name) {
+		return new LabelPyramidSource<>(pyramid, name, new ARGBType(),
+				level -> Converters.convert(level, (input, output) -> output.set(input.getInteger()), new ARGBType()));
+	}
+
+	/**
+	 * @param converter converts a level of the pyramid to the type of this source, called once per level
+	 *                  and again after the pyramid was invalidated, so it can wrap the levels as volatile images
+	 */
+	LabelPyramidSource(LabelPyramid pyramid, String name, T type, Function<RandomAccessibleInterval<? extends IntegerType<?>>, RandomAccessibleInterval<T>> converter) {
+		this.pyramid = pyramid;
+		this.name = name;
+		this.type = type;
+		this.converter = converter;
+		convertedVersions = new int[pyramid.numLevels()];
+		converted = new RandomAccessibleInterval[pyramid.numLevels()];
+		transforms = new AffineTransform3D[pyramid.numLevels()];
+		for (int level = 0; level < transforms.length; level++) {
+			int[] factors = pyramid.getFactors(level);
+			long[] offset = pyramid.getOffset();
+			AffineTransform3D transform = new AffineTransform3D();
+			for (int d = 0; d < Math.min(3, factors.length); d++) {
+				// pixel centers of a level lie in the middle of the pixels they cover
+				transform.set(factors[d], d, d);
+				transform.set(offset[d] + 0.5 * (factors[d] - 1), d, 3);
+			}
+			transforms[level] = transform;
+		}
+	}
+
+	@Override
+	public boolean isPresent(int t) {
+		return t == 0;
+	}
+
+	@Override
+	public synchronized RandomAccessibleInterval<T> getSource(int t, int level) {
+		int version = pyramid.getVersion();
+		if(converted[level] == null || convertedVersions[level] != version) {
+			// volatile views cache the cells they loaded, they would keep showing invalidated cells
+			RandomAccessibleInterval<T> res = converter.apply(pyramid.getLevel(level));
+			converted[level] = res.numDimensions() == 2 ? Views.addDimension(res, 0, 0) : res;
+			convertedVersions[level] = version;
+		}
+		return converted[level];
+	}
+
+	@Override
+	public RealRandomAccessible<T> getInterpolatedSource(int t, int level, Interpolation method) {
+		// label set indices can't be interpolated
+		return Views.interpolate(Views.extendZero(getSource(t, level)), new NearestNeighborInterpolatorFactory<>());
+	}
+
+	@Override
+	public void getSourceTransform(int t, int level, AffineTransform3D transform) {
+		transform.set(transforms[level]);
+	}
+
+	@Override
+	public T getType() {
+		return type.createVariable();
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public VoxelDimensions getVoxelDimensions() {
+		return voxelDimensions;
+	}
+
+	@Override
+	public int getNumMipmapLevels() {
+		return pyramid.numLevels();
+	}
+}
@@ -32,21 +32,22 @@ import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.roi.labeling.ImgLabeling;
 import net.imglib2.roi.labeling.LabelingType;
 import net.imglib2.type.numeric.IntegerType;
-import net.imglib2.type.numeric.integer.IntType;
 import net.imglib2.view.IntervalView;
 import net.imglib2.view.Views;
 import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
 
+import java.util.stream.IntStream;
+
 public class TimeSliceLabelEditorModel<L> extends DefaultLabelEditorModel<L> {
 
 	private final int timeDimension;
 
-	public TimeSliceLabelEditorModel(ImgLabeling<L, IntType> labeling, int timeDimension) {
+	public TimeSliceLabelEditorModel(ImgLabeling<L, ? extends IntegerType<?>> labeling, int timeDimension) {
 		super(labeling);
 		this.timeDimension = timeDimension;
 	}
 
-	public TimeSliceLabelEditorModel(ImgLabeling<L, IntType> labeling, RandomAccessibleInterval data, int timeDimension) {
+	public TimeSliceLabelEditorModel(ImgLabeling<L, ? extends IntegerType<?>> labeling, RandomAccessibleInterval data, int timeDimension) {
 		super(labeling, data);
 		this.timeDimension = timeDimension;
 	}
@@ -55,6 +56,12 @@ public class TimeSliceLabelEditorModel<L> extends DefaultLabelEditorModel<L> {
 		return timeDimension;
 	}
 
+	@Override
+	public int[] getSpatialDimensions() {
+		return IntStream.range(0, Math.min(3, labeling().numDimensions() - 1))
+				.map(d -> d < timeDimension ? d : d + 1).toArray();
+	}
+
 	public IntervalView<LabelingType<L>> getLabelingAtTime(long currentTimePoint) {
 		return Views.hyperSlice(labeling(), getTimeDimension(), currentTimePoint);
 	}
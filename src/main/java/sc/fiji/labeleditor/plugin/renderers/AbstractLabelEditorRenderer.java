@@ -32,40 +32,80 @@ import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.converter.Converter;
 import net.imglib2.converter.Converters;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
 import net.imglib2.roi.labeling.LabelingMapping;
 import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.integer.IntType;
+import sc.fiji.labeleditor.core.model.BoundaryMask;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
 import sc.fiji.labeleditor.core.model.colors.LabelEditorColor;
 import sc.fiji.labeleditor.core.model.colors.LabelEditorColorset;
+import sc.fiji.labeleditor.core.model.colors.LabelEditorPalette;
 import sc.fiji.labeleditor.core.model.colors.LabelEditorTagColors;
+import sc.fiji.labeleditor.core.model.colors.LabelEditorValueColor;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTagging;
+import sc.fiji.labeleditor.core.model.tagging.TagChangedEvent;
 import sc.fiji.labeleditor.core.view.LabelEditorOverlayRenderer;
 import sc.fiji.labeleditor.core.view.LabelEditorTargetComponent;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 public abstract class AbstractLabelEditorRenderer<L> implements LabelEditorOverlayRenderer<L> {
 
-	private int[] lut;
+	// full LUT builds with more label sets are computed in ranges of RANGE_SIZE sets in parallel
+	static final int PARALLEL_THRESHOLD = 1 << 14;
+	private static final int RANGE_SIZE = 1 << 12;
+
+	private volatile PublishedLUT publishedLUT = new PublishedLUT(new int[0], 0);
 	private boolean debug = false;
 	private boolean active = true;
-	private LabelEditorModel<L> model;
-	private RandomAccessibleInterval<? extends IntegerType<?>> screenImg;
+	private volatile LabelEditorModel<L> model;
+	// set by painter threads, which must not wait for LUT updates holding the monitor
+	private volatile RandomAccessibleInterval<? extends IntegerType<?>> screenImg;
+	private final TagSignatureColorCache colorCache = new TagSignatureColorCache();
+	private final ColorBuffers buffers = new ColorBuffers();
 
 	@Override
 	public void init(LabelEditorModel<L> model, RandomAccessibleInterval<? extends ARGBType> screenImg) {
 		init(model);
-		updateScreenImage(Converters.convert(screenImg, (input, output) -> output.set(input.get()), new IntType()));
+		setScreenImage(screenImg);
+	}
+
+	@Override
+	public void setScreenImage(RandomAccessibleInterval<? extends ARGBType> screenImg) {
+		ArrayImg<IntType, IntArray> indexImg = asIndexImg(screenImg);
+		// without boundary mask the screen image holds plain indices and can be read as is
+		if(indexImg != null && (model == null || model.getBoundaryMask() == null)) {
+			updateScreenImage(indexImg);
+		} else {
+			updateScreenImage(Converters.convert(screenImg, (input, output) -> output.set(BoundaryMask.indexOf(input.get())), new IntType()));
+		}
+	}
+
+	/**
+	 * @return the screen image as {@link IntType} image sharing its backing array, or null if it is not array backed
+	 */
+	static ArrayImg<IntType, IntArray> asIndexImg(RandomAccessibleInterval<? extends ARGBType> screenImg) {
+		if(!(screenImg instanceof ArrayImg)) return null;
+		Object access = ((ArrayImg<?, ?>) screenImg).update(null);
+		if(!(access instanceof IntArray)) return null;
+		return ArrayImgs.ints(((IntArray) access).getCurrentStorageArray(), screenImg.dimensionsAsLongArray());
 	}
 
 	protected void init(LabelEditorModel<L> model) {
+		if(this.model != model) colorCache.clear();
 		this.model = model;
-		lut = new int[model.labeling().getMapping().numSets()];
 		updateOnTagChange();
 	}
 
@@ -74,13 +114,32 @@ public abstract class AbstractLabelEditorRenderer<L> implements LabelEditorOverl
 		return model;
 	}
 
-	protected synchronized <I extends IntegerType<I>> void updateScreenImage(RandomAccessibleInterval<I> screenImage) {
+	protected <I extends IntegerType<I>> void updateScreenImage(RandomAccessibleInterval<I> screenImage) {
 		this.screenImg = screenImage;
 	}
 
+	RandomAccessibleInterval<? extends IntegerType<?>> getScreenImage() {
+		return screenImg;
+	}
+
 	@Override
 	public synchronized void updateOnTagChange() {
-		updateLUT(LabelEditorTargetComponent.FACE);
+		updateLUT(getTargetComponent());
+	}
+
+	@Override
+	public synchronized void updateOnTagChange(List<TagChangedEvent> events) {
+		updateLUT(getTargetComponent(), events);
+	}
+
+	@Override
+	public synchronized void updateOnColorChange() {
+		colorCache.clear();
+		updateOnTagChange();
+	}
+
+	protected LabelEditorTargetComponent getTargetComponent() {
+		return LabelEditorTargetComponent.FACE;
 	}
 
 	protected synchronized void updateLUT(LabelEditorTargetComponent targetComponent) {
@@ -90,37 +149,196 @@ public abstract class AbstractLabelEditorRenderer<L> implements LabelEditorOverl
 		LabelEditorTagColors tagColors = model.colors();
 		LabelingMapping<L> mapping = model.labeling().getMapping();
 
-		Arrays.fill(lut, 0);
+		int[] lut = new int[mapping.numSets()];
 
-		if(tagColors == null) return;
+		if(tagColors != null) {
+			fillLUT(lut, 0, tagColors, targetComponent, mapping);
+		}
 
-		for (int i = 0; i < lut.length; i++) {
+		publish(lut);
+
+		if(debug) {
+			printLUT(targetComponent, mapping, lut);
+		}
+	}
+
+	/**
+	 * Only recomputes the LUT entries of label sets containing a label listed in the events.
+	 */
+	protected synchronized void updateLUT(LabelEditorTargetComponent targetComponent, List<TagChangedEvent> events) {
+
+		if(model == null) return;
 
-			Set<L> labels = mapping.labelsAtIndex(i);
+		LabelEditorTagColors tagColors = model.colors();
+
+		if(tagColors == null) return;
 
-			if(labels.size() == 0) continue;
+		Set<L> changedLabels = getChangedLabels(events);
+		if(changedLabels == null) {
+			updateLUT(targetComponent);
+			return;
+		}
 
-			lut[i] = getMixColor(tagColors, targetComponent, labels);
+		LabelingMapping<L> mapping = model.labeling().getMapping();
+		int[] published = publishedLUT.colors;
+		// the published LUT might still be read by painter threads, changes go into a copy
+		int[] lut = published.length < mapping.numSets() ? grow(published, tagColors, targetComponent, mapping) : null;
+		int[] current = lut == null ? published : lut;
+
+		BitSet changedSets = new BitSet(current.length);
+		for (L label : changedLabels) {
+			for (int i : model.getLabelSetIndices(label)) {
+				if(i < current.length) changedSets.set(i);
+			}
+		}
 
+		for (int i = changedSets.nextSetBit(0); i >= 0; i = changedSets.nextSetBit(i + 1)) {
+			List<L> labels = model.getSortedLabels(i);
+			int color = labels.isEmpty() ? 0 : getMixColor(tagColors, targetComponent, labels, buffers);
+			if(color == current[i]) continue;
+			if(lut == null) lut = published.clone();
+			lut[i] = color;
 		}
 
+		if(lut == null) return;
+
+		publish(lut);
+
 		if(debug) {
 			printLUT(targetComponent, mapping, lut);
 		}
 	}
 
+	/**
+	 * Appends the entries of label sets which were added to the mapping since the LUT was built.
+	 */
+	protected synchronized void growLUT(LabelEditorTargetComponent targetComponent) {
+
+		if(model == null) return;
+
+		LabelingMapping<L> mapping = model.labeling().getMapping();
+		int[] published = publishedLUT.colors;
+
+		if(published.length >= mapping.numSets()) return;
+
+		publish(grow(published, model.colors(), targetComponent, mapping));
+	}
+
+	private int[] grow(int[] lut, LabelEditorTagColors tagColors, Object targetComponent, LabelingMapping<L> mapping) {
+		int[] res = Arrays.copyOf(lut, mapping.numSets());
+		if(tagColors != null) {
+			fillLUT(res, lut.length, tagColors, targetComponent, mapping);
+		}
+		return res;
+	}
+
+	/**
+	 * Computes the LUT entries from {@code start} on. Each entry only depends on its own label set,
+	 * large LUTs are therefore split into ranges which are computed in parallel with the same result.
+	 * The ranges read tags and values concurrently, the tagging has to allow concurrent reads to benefit from it.
+	 */
+	void fillLUT(int[] lut, int start, LabelEditorTagColors tagColors, Object targetComponent, LabelingMapping<L> mapping) {
+		int count = lut.length - start;
+		if(count <= 0) return;
+		// sorts the new label sets once before the ranges read them
+		model.getSortedLabels(lut.length - 1);
+		if(count < PARALLEL_THRESHOLD) {
+			fillLUT(lut, start, lut.length, tagColors, targetComponent, mapping, buffers);
+			return;
+		}
+		int numRanges = (count + RANGE_SIZE - 1) / RANGE_SIZE;
+		IntStream.range(0, numRanges).parallel().forEach(range -> {
+			int from = start + range * RANGE_SIZE;
+			int to = (int) Math.min(lut.length, (long) from + RANGE_SIZE);
+			fillLUT(lut, from, to, tagColors, targetComponent, mapping, new ColorBuffers());
+		});
+	}
+
+	void fillLUT(int[] lut, int from, int to, LabelEditorTagColors tagColors, Object targetComponent, LabelingMapping<L> mapping, ColorBuffers buffers) {
+		for (int i = from; i < to; i++) {
+
+			List<L> labels = model.getSortedLabels(i);
+
+			if(labels.isEmpty()) continue;
+
+			lut[i] = getMixColor(tagColors, targetComponent, labels, buffers);
+
+		}
+	}
+
+	/**
+	 * Makes the LUT visible to {@link #getOutput()}. The array must not be modified afterwards.
+	 * The version is only increased if the colors actually differ from the current LUT.
+	 */
+	private void publish(int[] lut) {
+		PublishedLUT current = publishedLUT;
+		if(Arrays.equals(lut, current.colors)) return;
+		publishedLUT = new PublishedLUT(lut, current.version + 1);
+	}
+
+	private Set<L> getChangedLabels(List<TagChangedEvent> events) {
+		Set<L> res = new HashSet<>();
+		for (TagChangedEvent<L> event : events) {
+			if(event.labels == null) return null;
+			res.addAll(event.labels);
+		}
+		return res;
+	}
+
 	protected int getMixColor(LabelEditorTagColors tagColors, Object targetComponent, Set<L> labels) {
+		return getMixColor(tagColors, targetComponent, labels, new ColorBuffers());
+	}
+
+	private int getMixColor(LabelEditorTagColors tagColors, Object targetComponent, Set<L> labels, ColorBuffers buffers) {
 		if(labels.size() > 1) {
-			Stream<Integer> labelColors = labels.stream().sorted(model.getLabelComparator()).map(label -> getLabelColor(tagColors, targetComponent, label));
-			return ColorMixingUtils.mixColorsOverlay(labelColors);
+			List<L> sortedLabels = new ArrayList<>(labels);
+			sortedLabels.sort(model.getLabelComparator());
+			return getMixColor(tagColors, targetComponent, sortedLabels, buffers);
 		} else {
-			return getLabelColor(tagColors, targetComponent, labels.iterator().next());
+			return getLabelColor(tagColors, targetComponent, labels.iterator().next(), buffers);
+		}
+	}
+
+	private int getMixColor(LabelEditorTagColors tagColors, Object targetComponent, List<L> sortedLabels, ColorBuffers buffers) {
+		if(sortedLabels.size() == 1) return getLabelColor(tagColors, targetComponent, sortedLabels.get(0), buffers);
+		int[] labelColors = buffers.labels(sortedLabels.size());
+		int count = 0;
+		for (L label : sortedLabels) {
+			labelColors[count++] = getLabelColor(tagColors, targetComponent, label, buffers);
 		}
+		return ColorMixingUtils.mixOverlay(labelColors, count);
+	}
+
+	private int getLabelColor(LabelEditorTagColors tagColors, Object targetComponent, L label, ColorBuffers buffers) {
+		LabelEditorTagging<L> tagging = model.tagging();
+		LabelEditorPalette palette = tagColors.getPalette();
+		if(palette != null) return getPaletteColor(palette, tagColors, targetComponent, tagging, label, buffers);
+		return colorCache.get(label, targetComponent, tagColors, tagging, tags -> {
+			int[] colors = buffers.tags(tags.size() + 1);
+			int count = 0;
+			for (Object tag : tags) {
+				colors[count++] = getTagColor(label, tag, tagColors, targetComponent, tagging);
+			}
+			colors[count++] = getTagColor(label, LabelEditorTag.DEFAULT, tagColors, targetComponent, tagging);
+			return ColorMixingUtils.mixOverlay(colors, count);
+		});
 	}
 
-	private int getLabelColor(LabelEditorTagColors tagColors, Object targetComponent, L label) {
-		Stream<Object> labelTags = Stream.concat(model.tagging().getTags(label).stream(), Stream.of(LabelEditorTag.DEFAULT));
-		return mixColorsOverlay(label, labelTags, tagColors, targetComponent, model.tagging());
+	/**
+	 * The palette color replaces the default tag color, colors of other tags are mixed on top.
+	 */
+	private int getPaletteColor(LabelEditorPalette palette, LabelEditorTagColors tagColors, Object targetComponent, LabelEditorTagging<L> tagging, L label, ColorBuffers buffers) {
+		int ordinal = model.getLabelOrdinal(label);
+		int color = ordinal < 0 ? 0 : palette.get(ordinal, targetComponent);
+		List<Object> tags = tagging.getTags(label);
+		if(tags.isEmpty()) return color;
+		int[] colors = buffers.tags(tags.size() + 1);
+		int count = 0;
+		for (Object tag : tags) {
+			colors[count++] = getTagColor(label, tag, tagColors, targetComponent, tagging);
+		}
+		colors[count++] = color;
+		return ColorMixingUtils.mixOverlay(colors, count);
 	}
 
 	private void printLUT(LabelEditorTargetComponent target, LabelingMapping<L> mapping, int[] lut) {
@@ -144,29 +362,41 @@ public abstract class AbstractLabelEditorRenderer<L> implements LabelEditorOverl
 	}
 
 	@Override
-	public void updateOnLabelingChange() {
+	public synchronized void updateOnLabelingChange() {
+		growLUT(getTargetComponent());
 	}
 
 	@Override
 	public <T extends RandomAccessible<? extends ARGBType>> T getOutput() {
+		// each output is bound to one LUT, later updates are picked up by the next call
 		int[] lut = getLUT();
 		return (T) convert(lut, (RandomAccessibleInterval)screenImg);
 	}
 
+	@Override
+	public long getVersion() {
+		return publishedLUT.version;
+	}
+
 	private static <I extends IntegerType<I>> RandomAccessibleInterval<ARGBType> convert(int[] lut, RandomAccessibleInterval<I> screenImg) {
+		// label sets added after the LUT was published are rendered transparent until the next update
+		int size = lut.length;
 		Converter<I, ARGBType> converter = (i, o) -> {
-			try {
-				o.set(lut[i.getInteger()]);
-			} catch(ArrayIndexOutOfBoundsException e) {
-				//FIXME I cannot figure out why this is happening. to reproduce, remove this catch and run the AddToExistingBDV example.
-			}
+			int index = i.getInteger();
+			o.set(index >= 0 && index < size ? lut[index] : 0);
 		};
 		return Converters.convert(screenImg, converter, new ARGBType());
 	}
 
 	@Override
-	public void setActive(boolean active) {
+	public synchronized void setActive(boolean active) {
+		boolean reactivated = active && !this.active;
 		this.active = active;
+		// tags and colors might have changed while inactive
+		if(reactivated) {
+			colorCache.clear();
+			updateOnTagChange();
+		}
 	}
 
 	@Override
@@ -175,7 +405,7 @@ public abstract class AbstractLabelEditorRenderer<L> implements LabelEditorOverl
 	}
 
 	protected int[] getLUT() {
-		return lut;
+		return publishedLUT.colors;
 	}
 
 	public static <L> int mixColorsAdditive(L label, Stream<Object> tags, LabelEditorTagColors tagColors, Object targetComponent, LabelEditorTagging tagging) {
@@ -193,17 +423,50 @@ public abstract class AbstractLabelEditorRenderer<L> implements LabelEditorOverl
 	protected static <L> Stream<Integer> getTagColors(L label, Stream< Object > tags,
 													LabelEditorTagColors tagColors, Object targetComponent, LabelEditorTagging tagging)
 	{
-		return tags.map(tag -> {
-			LabelEditorColorset colorset = tagColors.getColorset(tag);
-			if(colorset == null) return 0;
-			LabelEditorColor leColor = colorset.get(targetComponent);
-			if(leColor == null) return 0;
-			Object value = tagging.getValue(tag, label);
-			return leColor.get(value);
-		});
+		return tags.map(tag -> getTagColor(label, tag, tagColors, targetComponent, tagging));
+	}
+
+	protected static <L> int getTagColor(L label, Object tag, LabelEditorTagColors tagColors, Object targetComponent, LabelEditorTagging<L> tagging) {
+		LabelEditorColorset colorset = tagColors.getColorset(tag);
+		if(colorset == null) return 0;
+		LabelEditorColor leColor = colorset.get(targetComponent);
+		if(leColor == null) return 0;
+		// value colors interpolate on the primitive value, other colors get the stored value object
+		if(leColor instanceof LabelEditorValueColor) return leColor.get(tagging.getDouble(tag, label));
+		return leColor.get(tagging.getValue(tag, label));
 	}
 
 	void printLUT() {
-		printLUT(null, model.labeling().getMapping(), lut);
+		printLUT(null, model.labeling().getMapping(), getLUT());
+	}
+
+	/**
+	 * Reusable arrays for mixing colors, each thread computing LUT entries uses its own instance.
+	 */
+	static class ColorBuffers {
+
+		private int[] labels = new int[8];
+		private int[] tags = new int[8];
+
+		int[] labels(int size) {
+			if(labels.length < size) labels = new int[size];
+			return labels;
+		}
+
+		int[] tags(int size) {
+			if(tags.length < size) tags = new int[size];
+			return tags;
+		}
+	}
+
+	private static class PublishedLUT {
+
+		private final int[] colors;
+		private final long version;
+
+		private PublishedLUT(int[] colors, long version) {
+			this.colors = colors;
+			this.version = version;
+		}
 	}
 }
@@ -29,24 +29,40 @@
 package sc.fiji.labeleditor.plugin.renderers;
 
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converters;
 import net.imglib2.roi.boundary.IntTypeBoundary;
+import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.integer.IntType;
 import org.scijava.plugin.Plugin;
+import sc.fiji.labeleditor.core.model.BoundaryMask;
 import sc.fiji.labeleditor.core.view.LabelEditorRenderer;
 import sc.fiji.labeleditor.core.view.LabelEditorTargetComponent;
 
 @Plugin(type = LabelEditorRenderer.class, name = "borders", priority = 2)
 public class BorderLabelEditorRenderer<L> extends DefaultLabelEditorRenderer<L> {
 
+	@Override
+	public void setScreenImage(RandomAccessibleInterval<? extends ARGBType> screenImg) {
+		if(model() != null && model().getBoundaryMask() != null) {
+			// the boundaries were precomputed and are flagged in the index values
+			super.updateScreenImage(Converters.convert(screenImg, (input, output) -> {
+				int value = input.get();
+				output.set(BoundaryMask.isBoundary(value) ? BoundaryMask.indexOf(value) : 0);
+			}, new IntType()));
+		} else {
+			super.setScreenImage(screenImg);
+		}
+	}
+
 	@Override
 	protected <I extends IntegerType<I>> void updateScreenImage(RandomAccessibleInterval<I> screenImage) {
 		super.updateScreenImage(new IntTypeBoundary<>(screenImage, -1));
 	}
 
 	@Override
-	public synchronized void updateOnTagChange() {
-		updateLUT(LabelEditorTargetComponent.BORDER);
+	protected LabelEditorTargetComponent getTargetComponent() {
+		return LabelEditorTargetComponent.BORDER;
 	}
 
 }
@@ -30,14 +30,6 @@ package sc.fiji.labeleditor.plugin.renderers;
 
 import net.imglib2.type.numeric.ARGBType;
 
-import java.util.Collections;
-import java.util.Set;
-import java.util.function.BiConsumer;
-import java.util.function.BinaryOperator;
-import java.util.function.Function;
-import java.util.function.Supplier;
-import java.util.stream.Collector;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class ColorMixingUtils {
@@ -45,94 +37,59 @@ public class ColorMixingUtils {
     //https://en.wikipedia.org/wiki/Alpha_compositing
     //https://wikimedia.org/api/rest_v1/media/math/render/svg/12ea004023a1756851fc7caa0351416d2ba03bae
 
-    public static Integer mixColorsOverlay(Stream<Integer> colors) {
-        return colors.collect(new Collector<Integer, int[], Integer>() {
-            @Override
-            public Supplier<int[]> supplier() {
-                return () -> new int[4];
-            }
-
-            @Override
-            public BiConsumer<int[], Integer> accumulator() {
-                return (a, t) -> {
-                    if (t == 0) return;
-                    float newalpha = ((float) ARGBType.alpha(t)) / 255.f;
-                    float alpha = (float) (a[3]) / 255.f;
-                    if (a[3] < 0.0001 && newalpha < 0.0001) return;
-                    float new_alpha_inverted = newalpha * (1 - alpha);
-                    a[0] = (int) ((a[0] * alpha + (float) ARGBType.red(t) * new_alpha_inverted) / (alpha + new_alpha_inverted));
-                    a[1] = (int) ((a[1] * alpha + (float) ARGBType.green(t) * new_alpha_inverted) / (alpha + new_alpha_inverted));
-                    a[2] = (int) ((a[2] * alpha + (float) ARGBType.blue(t) * new_alpha_inverted) / (alpha + new_alpha_inverted));
-                    a[3] = (int) (255 * (alpha + new_alpha_inverted));
-                };
-            }
-
-            @Override
-            public BinaryOperator<int[]> combiner() {
-                return (a, b) -> {
-                    if ((b[0] == 0 && b[1] == 0 && b[2] == 0) || b[3] == 0) return a;
-                    float newalpha = ((float) b[3]) / 255.f;
-                    float alpha = (float) (a[3]) / 255.f;
-                    if (alpha < 0.0001 && newalpha < 0.0001) return a;
-                    float new_alpha_inverted = newalpha * (1 - alpha);
-                    a[0] = (int) ((a[0] * alpha + (float) b[0] * new_alpha_inverted) / (alpha + new_alpha_inverted));
-                    a[1] = (int) ((a[1] * alpha + (float) b[1] * new_alpha_inverted) / (alpha + new_alpha_inverted));
-                    a[2] = (int) ((a[2] * alpha + (float) b[2] * new_alpha_inverted) / (alpha + new_alpha_inverted));
-                    a[3] = (int) (255 * (alpha + new_alpha_inverted));
-                    return a;
-                };
-            }
-
-            @Override
-            public Function<int[], Integer> finisher() {
-                return (a) -> ARGBType.rgba(a[0], a[1], a[2], a[3]);
-            }
+    /**
+     * Mixes the first {@code count} colors by placing each color underneath the previous ones.
+     * Uses integer math with weights scaled by 255*255, colors which are 0 are skipped.
+     */
+    public static int mixOverlay(int[] colors, int count) {
+        int red = 0, green = 0, blue = 0, alpha = 0;
+        for (int i = 0; i < count; i++) {
+            final int color = colors[i];
+            if (color == 0) continue;
+            final int newalpha = ARGBType.alpha(color);
+            if (alpha == 0 && newalpha == 0) continue;
+            final int weight = alpha * 255;
+            final int newweight = newalpha * (255 - alpha);
+            final int sum = weight + newweight;
+            red = (red * weight + ARGBType.red(color) * newweight) / sum;
+            green = (green * weight + ARGBType.green(color) * newweight) / sum;
+            blue = (blue * weight + ARGBType.blue(color) * newweight) / sum;
+            alpha = sum / 255;
+        }
+        return ARGBType.rgba(red, green, blue, alpha);
+    }
 
-            @Override
-            public Set<Characteristics> characteristics() {
-                return Collections.emptySet();
-            }
-        });
+    /**
+     * Mixes the first {@code count} colors by adding up their alpha weighted channels.
+     * Uses integer math with channels scaled by 255, colors which are 0 are skipped.
+     */
+    public static int mixAdditive(int[] colors, int count) {
+        final int max = 255 * 255;
+        int red = 0, green = 0, blue = 0, alpha = 0;
+        for (int i = 0; i < count; i++) {
+            final int color = colors[i];
+            if (color == 0) continue;
+            final int newalpha = ARGBType.alpha(color);
+            if (alpha == 0 && newalpha == 0) continue;
+            red = Math.min(max, red + ARGBType.red(color) * newalpha);
+            green = Math.min(max, green + ARGBType.green(color) * newalpha);
+            blue = Math.min(max, blue + ARGBType.blue(color) * newalpha);
+            alpha = alpha + newalpha * (max - alpha) / 255;
+        }
+        return ARGBType.rgba(red / 255, green / 255, blue / 255, alpha / 255);
+    }
 
+    public static Integer mixColorsOverlay(Stream<Integer> colors) {
+        int[] array = colors.mapToInt(Integer::intValue).toArray();
+        return mixOverlay(array, array.length);
     }
 
     public static int mixColorsAdditive(int[] colors) {
-        float red = 0;
-        float green = 0;
-        float blue = 0;
-        float alpha = 0;
-        for (int color : colors) {
-            if (color == 0) continue;
-            float newred = ARGBType.red(color);
-            float newgreen = ARGBType.green(color);
-            float newblue = ARGBType.blue(color);
-            float newalpha = ((float) ARGBType.alpha(color)) / 255.f;
-            if (alpha < 0.0001 && newalpha < 0.0001) continue;
-            red = Math.min(255, red + newred * newalpha);
-            green = Math.min(255, green + newgreen * newalpha);
-            blue = Math.min(255, blue + newblue * newalpha);
-            alpha = alpha + newalpha * (1 - alpha);
-        }
-        return ARGBType.rgba((int) red, (int) green, (int) blue, (int) (alpha * 255));
+        return mixAdditive(colors, colors.length);
     }
 
     public static int mixColorsAdditive(Stream<Integer> colors) {
-        float red = 0;
-        float green = 0;
-        float blue = 0;
-        float alpha = 0;
-        for (int color : colors.collect(Collectors.toList())) {
-            if (color == 0) continue;
-            float newred = ARGBType.red(color);
-            float newgreen = ARGBType.green(color);
-            float newblue = ARGBType.blue(color);
-            float newalpha = ((float) ARGBType.alpha(color)) / 255.f;
-            if (alpha < 0.0001 && newalpha < 0.0001) continue;
-            red = Math.min(255, red + newred * newalpha);
-            green = Math.min(255, green + newgreen * newalpha);
-            blue = Math.min(255, blue + newblue * newalpha);
-            alpha = alpha + newalpha * (1 - alpha);
-        }
-        return ARGBType.rgba((int) red, (int) green, (int) blue, (int) (alpha * 255));
+        int[] array = colors.mapToInt(Integer::intValue).toArray();
+        return mixAdditive(array, array.length);
     }
 }
@@ -53,6 +53,12 @@ public class DataLabelEditorRenderer<L> implements LabelEditorRenderer<L> {
 	@Override
 	public void updateOnLabelingChange() {}
 
+	@Override
+	public long getVersion() {
+		// the data does not depend on tags or colors
+		return 0;
+	}
+
 	@Override
 	public void setActive(boolean active) {
 		this.active = active;
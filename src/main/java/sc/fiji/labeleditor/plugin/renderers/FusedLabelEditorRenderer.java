@@ -0,0 +1,188 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.renderers;
+
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converters;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.integer.IntType;
+import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.tagging.TagChangedEvent;
+import sc.fiji.labeleditor.core.view.LabelEditorOverlayRenderer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Renders faces and borders of a labeling into one overlay, as an alternative to adding both
+ * {@link DefaultLabelEditorRenderer} and {@link BorderLabelEditorRenderer} to a view.
+ * Each labeling then contributes one screen image instead of two and every pixel of the index image
+ * is sampled by one {@link net.imglib2.RandomAccess} only.
+ * <pre>
+ *     view.setFuseFacesAndBorders(true);
+ *     view.addDefaultRenderers();
+ * </pre>
+ * or {@link sc.fiji.labeleditor.plugin.interfaces.bdv.BdvInterface#setFuseFacesAndBorders(boolean)}.
+ * This renderer is not registered as plugin, otherwise it would be added next to the face and border renderers.
+ */
+public class FusedLabelEditorRenderer<L> implements LabelEditorOverlayRenderer<L> {
+
+	private final DefaultLabelEditorRenderer<L> faces = new DefaultLabelEditorRenderer<>();
+	private final BorderLabelEditorRenderer<L> borders = new BorderLabelEditorRenderer<>();
+	private volatile FusedLUT lut = new FusedLUT(new int[0], new int[0], new int[0], new int[0], 0);
+	private boolean active = true;
+	private volatile LabelEditorModel<L> model;
+	private volatile RandomAccessibleInterval<IntType> screenImg;
+
+	@Override
+	public synchronized void init(LabelEditorModel<L> model, RandomAccessibleInterval<? extends ARGBType> screenImage) {
+		this.model = model;
+		faces.init(model);
+		borders.init(model);
+		combine();
+		setScreenImage(screenImage);
+	}
+
+	@Override
+	public void setScreenImage(RandomAccessibleInterval<? extends ARGBType> screenImage) {
+		// array backed screen images are read directly, also by the boundary check of the overlay
+		RandomAccessibleInterval<IntType> indexImg = AbstractLabelEditorRenderer.asIndexImg(screenImage);
+		screenImg = indexImg != null ? indexImg : Converters.convert(screenImage, (input, output) -> output.set(input.get()), new IntType());
+	}
+
+	@Override
+	public synchronized void updateOnTagChange() {
+		faces.updateOnTagChange();
+		borders.updateOnTagChange();
+		combine();
+	}
+
+	@Override
+	public synchronized void updateOnTagChange(List<TagChangedEvent> events) {
+		faces.updateOnTagChange(events);
+		borders.updateOnTagChange(events);
+		combine();
+	}
+
+	@Override
+	public synchronized void updateOnColorChange() {
+		faces.updateOnColorChange();
+		borders.updateOnColorChange();
+		combine();
+	}
+
+	@Override
+	public synchronized void updateOnLabelingChange() {
+		faces.updateOnLabelingChange();
+		borders.updateOnLabelingChange();
+		combine();
+	}
+
+	/**
+	 * Precomputes the border color of each label set composited on top of its face color.
+	 */
+	private void combine() {
+		FusedLUT current = lut;
+		int[] faceLUT = faces.getLUT();
+		int[] borderLUT = borders.getLUT();
+		if(faceLUT == current.faceSource && borderLUT == current.borderSource) return;
+		int size = Math.min(faceLUT.length, borderLUT.length);
+		int[] faceColors = Arrays.copyOf(faceLUT, size);
+		int[] boundaryColors = new int[size];
+		int[] colors = new int[2];
+		for (int i = 0; i < size; i++) {
+			colors[0] = borderLUT[i];
+			colors[1] = faceLUT[i];
+			boundaryColors[i] = ColorMixingUtils.mixOverlay(colors, 2);
+		}
+		lut = new FusedLUT(faceLUT, borderLUT, faceColors, boundaryColors, current.version + 1);
+	}
+
+	@Override
+	public <T extends RandomAccessible<? extends ARGBType>> T getOutput() {
+		// label sets added since the last labeling change are transparent until the view publishes the grown LUT
+		LabelEditorModel<L> model = this.model;
+		FusedLUT lut = this.lut;
+		return (T) new FusedOverlay<>(screenImg, -1, lut.faces, lut.boundaries, model != null && model.getBoundaryMask() != null);
+	}
+
+	@Override
+	public long getVersion() {
+		return lut.version;
+	}
+
+	@Override
+	public synchronized void setActive(boolean active) {
+		boolean reactivated = active && !this.active;
+		this.active = active;
+		// tags and colors might have changed while inactive
+		if(reactivated && model != null) {
+			updateOnColorChange();
+		}
+	}
+
+	@Override
+	public boolean isActive() {
+		return active;
+	}
+
+	@Override
+	public String getName() {
+		return "faces and borders";
+	}
+
+	@Override
+	public LabelEditorModel<L> model() {
+		return model;
+	}
+
+	@Override
+	public <M extends LabelEditorModel> boolean canDisplay(M model) {
+		return DefaultLabelEditorModel.class.isAssignableFrom(model.getClass());
+	}
+
+	private static class FusedLUT {
+
+		private final int[] faceSource;
+		private final int[] borderSource;
+		private final int[] faces;
+		private final int[] boundaries;
+		private final long version;
+
+		private FusedLUT(int[] faceSource, int[] borderSource, int[] faces, int[] boundaries, long version) {
+			this.faceSource = faceSource;
+			this.borderSource = borderSource;
+			this.faces = faces;
+			this.boundaries = boundaries;
+			this.version = version;
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.renderers;
+
+import net.imglib2.AbstractWrappedInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.roi.boundary.IntTypeBoundary;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.IntegerType;
+
+/**
+ * The ARGB overlay of an index image, combining face and border colors of each label set in one pass.
+ */
+final class FusedOverlay<T extends IntegerType<T>>
+	extends AbstractWrappedInterval<RandomAccessibleInterval<T>> implements RandomAccessibleInterval<ARGBType>
+{
+
+	private final IntTypeBoundary<T> boundary;
+	private final int[] faces;
+	private final int[] boundaries;
+
+	/**
+	 * @param faces the color of each label set index inside of the labels
+	 * @param boundaries the color of each label set index at the boundary of the labels,
+	 *                   needs to have the same length as {@code faces}
+	 * @param flagged whether boundary pixels are flagged in the index values of {@code img},
+	 *                see {@link sc.fiji.labeleditor.core.model.BoundaryMask}
+	 */
+	FusedOverlay(final RandomAccessibleInterval<T> img, int timeDim, int[] faces, int[] boundaries, boolean flagged)
+	{
+		super( img );
+		this.boundary = flagged ? null : new IntTypeBoundary<>( img, timeDim );
+		this.faces = faces;
+		this.boundaries = boundaries;
+	}
+
+	@Override
+	public RandomAccess<ARGBType> randomAccess() {
+		return new FusedOverlayRandomAccess<>( sourceInterval, boundary, faces, boundaries );
+	}
+
+	@Override
+	public RandomAccess<ARGBType> randomAccess(Interval interval) {
+		return randomAccess();
+	}
+
+}
@@ -0,0 +1,111 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.renderers;
+
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.roi.boundary.IntTypeBoundary;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.view.Views;
+import sc.fiji.labeleditor.core.model.BoundaryMask;
+
+/**
+ * Returns the boundary color of the label set index at the current position if a pixel
+ * in its 4-neighborhood (or n-dimensional equivalent) has a different index, otherwise the face color.
+ * The neighborhood is only checked for indices where both colors differ
+ * and if the boundaries are not already flagged in the index values.
+ * Neighbors are checked by the {@link RandomAccess} of an {@link IntTypeBoundary}, which reads array and cell images directly.
+ */
+final class FusedOverlayRandomAccess<T extends IntegerType<T>> extends Point implements RandomAccess<ARGBType>
+{
+	private final RandomAccess<T> indices;
+	private final RandomAccess<IntType> boundary;
+	private final int[] faces;
+	private final int[] boundaries;
+	private final ARGBType type;
+
+	/**
+	 * @param boundary the boundaries of {@code sourceInterval}, null if they are flagged in the index values
+	 */
+	FusedOverlayRandomAccess(final RandomAccessibleInterval<T> sourceInterval, final IntTypeBoundary<T> boundary, int[] faces, int[] boundaries)
+	{
+		super( sourceInterval.numDimensions() );
+		// the extension is only used when accessing positions outside of the source interval
+		this.indices = Views.extendMirrorSingle( sourceInterval ).randomAccess( sourceInterval );
+		this.boundary = boundary == null ? null : boundary.randomAccess();
+		this.faces = faces;
+		this.boundaries = boundaries;
+		this.type = new ARGBType();
+	}
+
+	private FusedOverlayRandomAccess(final FusedOverlayRandomAccess<T> ra)
+	{
+		super( ra );
+		this.indices = ra.indices.copyRandomAccess();
+		this.boundary = ra.boundary == null ? null : ra.boundary.copyRandomAccess();
+		this.faces = ra.faces;
+		this.boundaries = ra.boundaries;
+		this.type = ra.type.copy();
+	}
+
+	@Override
+	public ARGBType get()
+	{
+		indices.setPosition( this );
+		final int value = indices.get().getInteger();
+		final int center = BoundaryMask.indexOf( value );
+		if ( center <= 0 || center >= faces.length )
+		{
+			// label sets added after the LUT was built are transparent until the next update
+			type.set( 0 );
+			return type;
+		}
+		final int face = faces[ center ];
+		final int boundaryColor = boundaries[ center ];
+		type.set( face != boundaryColor && isBoundary( value ) ? boundaryColor : face );
+		return type;
+	}
+
+	private boolean isBoundary(final int value)
+	{
+		if ( boundary == null )
+			return BoundaryMask.isBoundary( value );
+		boundary.setPosition( this );
+		return boundary.get().get() != 0;
+	}
+
+	@Override
+	public FusedOverlayRandomAccess<T> copy()
+	{
+		return new FusedOverlayRandomAccess<>( this );
+	}
+}
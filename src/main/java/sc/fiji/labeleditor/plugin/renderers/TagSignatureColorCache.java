@@ -0,0 +1,99 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.renderers;
+
+import sc.fiji.labeleditor.core.model.colors.DefaultLabelEditorColor;
+import sc.fiji.labeleditor.core.model.colors.LabelEditorColor;
+import sc.fiji.labeleditor.core.model.colors.LabelEditorColorset;
+import sc.fiji.labeleditor.core.model.colors.LabelEditorTagColors;
+import sc.fiji.labeleditor.core.model.tagging.LabelEditorTagging;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Caches the mixed color of a label by the signature of its tags. Labels with the same tags share one entry,
+ * for tags with a value dependent color the value of the label is part of the signature.
+ * The cache has to be cleared whenever the colors change. It can be used by multiple threads building a LUT,
+ * a color might then be mixed more than once, but always with the same result.
+ */
+class TagSignatureColorCache {
+
+	private static final int MAX_SIGNATURES = 1 << 16;
+
+	private final Map<Object, Map<List<Object>, Integer>> colors = new ConcurrentHashMap<>();
+	private final Map<Object, Map<Object, Boolean>> valueDependentTags = new ConcurrentHashMap<>();
+
+	void clear() {
+		colors.clear();
+		valueDependentTags.clear();
+	}
+
+	<L> int get(L label, Object targetComponent, LabelEditorTagColors tagColors, LabelEditorTagging<L> tagging, ToIntFunction<List<Object>> mixer) {
+		List<Object> tags = tagging.getTags(label);
+		List<Object> signature = getSignature(label, tags, targetComponent, tagColors, tagging);
+		Map<List<Object>, Integer> targetColors = colors.computeIfAbsent(targetComponent, k -> new ConcurrentHashMap<>());
+		Integer color = targetColors.get(signature);
+		if(color == null) {
+			if(targetColors.size() >= MAX_SIGNATURES) targetColors.clear();
+			color = mixer.applyAsInt(tags);
+			targetColors.put(signature, color);
+		}
+		return color;
+	}
+
+	private <L> List<Object> getSignature(L label, List<Object> tags, Object targetComponent, LabelEditorTagColors tagColors, LabelEditorTagging<L> tagging) {
+		Map<Object, Boolean> valueDependent = valueDependentTags.computeIfAbsent(targetComponent, k -> new ConcurrentHashMap<>());
+		List<Object> signature = null;
+		for (int i = 0; i < tags.size(); i++) {
+			Object tag = tags.get(i);
+			if(valueDependent.computeIfAbsent(tag, t -> isValueDependent(tagColors, t, targetComponent))) {
+				if(signature == null) signature = new ArrayList<>(tags);
+				signature.set(i, new AbstractMap.SimpleImmutableEntry<>(tag, getSignatureValue(tag, label, tagging)));
+			}
+		}
+		return signature == null ? tags : signature;
+	}
+
+	private static <L> Object getSignatureValue(Object tag, L label, LabelEditorTagging<L> tagging) {
+		double value = tagging.getDouble(tag, label);
+		return Double.isNaN(value) ? tagging.getValue(tag, label) : value;
+	}
+
+	private static boolean isValueDependent(LabelEditorTagColors tagColors, Object tag, Object targetComponent) {
+		LabelEditorColorset colorset = tagColors.getColorset(tag);
+		if(colorset == null) return false;
+		LabelEditorColor color = colorset.get(targetComponent);
+		return color != null && !(color instanceof DefaultLabelEditorColor);
+	}
+}
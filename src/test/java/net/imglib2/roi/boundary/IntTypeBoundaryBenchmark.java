@@ -0,0 +1,186 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.boundary;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.AbstractConvertedRandomAccess;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.view.Views;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the previous boundary detection, which copied and compared types on a mirrored extension,
+ * with the primitive {@link IntTypeBoundaryRandomAccess4}, the array based {@link IntTypeBoundaryArrayRandomAccess4}
+ * and the cell based {@link IntTypeBoundaryCellRandomAccess4}.
+ * Each operation samples every pixel of a screen sized index image once.
+ * Run with the GC profiler to see the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 4, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 8, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class IntTypeBoundaryBenchmark {
+
+	private static final int WIDTH = 1024;
+	private static final int HEIGHT = 768;
+
+	private ArrayImg<IntType, IntArray> img;
+	private RandomAccessibleInterval<IntType> view;
+	private CellImg<IntType, ?> cellImg;
+
+	@Setup
+	public void setup() {
+		// square labels of 16 x 16 pixels
+		int[] data = new int[WIDTH * HEIGHT];
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				data[x + y * WIDTH] = 1 + x / 16 + (y / 16) * (WIDTH / 16);
+			}
+		}
+		img = ArrayImgs.ints(data, WIDTH, HEIGHT);
+		view = Views.interval(img, img);
+		cellImg = new CellImgFactory<>(new IntType(), 64, 64).create(WIDTH, HEIGHT);
+		LoopBuilder.setImages(img, cellImg).forEachPixel((in, out) -> out.set(in));
+	}
+
+	@Benchmark
+	public long mirrorCopyEquals() {
+		return sum(new MirrorBoundaryRandomAccess<>(img));
+	}
+
+	@Benchmark
+	public long primitive() {
+		return sum(new IntTypeBoundaryRandomAccess4<>(view, -1));
+	}
+
+	@Benchmark
+	public long array() {
+		return sum(new IntTypeBoundaryArrayRandomAccess4(img, -1));
+	}
+
+	@Benchmark
+	public long cells() {
+		return sum(new IntTypeBoundaryCellRandomAccess4<>(cellImg, -1));
+	}
+
+	private static long sum(RandomAccess<IntType> ra) {
+		long sum = 0;
+		for (int y = 0; y < HEIGHT; y++) {
+			ra.setPosition(y, 1);
+			for (int x = 0; x < WIDTH; x++) {
+				ra.setPosition(x, 0);
+				sum += ra.get().get();
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * The boundary detection as implemented before the primitive fast path.
+	 */
+	private static final class MirrorBoundaryRandomAccess<T extends IntegerType<T>> extends AbstractConvertedRandomAccess<T, IntType> {
+
+		private final int n;
+		private final IntType type = new IntType();
+
+		MirrorBoundaryRandomAccess(RandomAccessibleInterval<T> sourceInterval) {
+			super(Views.extendMirrorSingle(sourceInterval).randomAccess());
+			n = sourceInterval.numDimensions();
+		}
+
+		private MirrorBoundaryRandomAccess(MirrorBoundaryRandomAccess<T> ba) {
+			super(ba.source.copyRandomAccess());
+			n = ba.n;
+		}
+
+		@Override
+		public IntType get() {
+			T center = source.get().copy();
+			if (center.getInteger() > 0) {
+				for (int d = 0; d < n; ++d) {
+					bck(d);
+					if (!source.get().equals(center)) {
+						fwd(d);
+						type.set(center.getInteger());
+						return type;
+					}
+					fwd(d);
+					fwd(d);
+					if (!source.get().equals(center)) {
+						bck(d);
+						type.set(center.getInteger());
+						return type;
+					}
+					bck(d);
+				}
+			}
+			type.setZero();
+			return type;
+		}
+
+		@Override
+		public MirrorBoundaryRandomAccess<T> copy() {
+			return new MirrorBoundaryRandomAccess<>(this);
+		}
+	}
+
+	public static void main(String... args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(IntTypeBoundaryBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,176 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.boundary;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.ByteArray;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.view.Views;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IntTypeBoundaryTest {
+
+	@Test
+	public void testBoundary() {
+		ArrayImg<IntType, IntArray> img = ArrayImgs.ints(new int[]{
+				0, 1, 1, 1,
+				0, 1, 1, 1,
+				2, 2, 1, 1}, 4, 3);
+		// the image border is not a boundary
+		int[] expected = {
+				0, 1, 0, 0,
+				0, 1, 0, 0,
+				2, 2, 1, 0};
+		assertTrue(IntTypeBoundaryArrayRandomAccess4.isSupported(img));
+		assertBoundary(expected, new IntTypeBoundary<>(img, -1));
+		// not backed by an array
+		RandomAccessibleInterval<IntType> view = Views.interval(img, img);
+		assertFalse(IntTypeBoundaryArrayRandomAccess4.isSupported(view));
+		assertBoundary(expected, new IntTypeBoundary<>(view, -1));
+	}
+
+	@Test
+	public void testTimeDimension() {
+		ArrayImg<UnsignedShortType, ShortArray> img = ArrayImgs.unsignedShorts(new short[]{
+				1, 1, 1,
+				1, 1, 1,
+				1, 1, 1,
+
+				1, 1, 1,
+				1, 1, 1,
+				1, 1, 2}, 3, 3, 2);
+		int[] expected = {
+				0, 0, 0,
+				0, 0, 0,
+				0, 0, 0,
+
+				0, 0, 0,
+				0, 0, 1,
+				0, 1, 2};
+		assertBoundary(expected, new IntTypeBoundary<>(img, 2));
+		assertBoundary(expected, new IntTypeBoundary<>(Views.interval(img, img), 2));
+	}
+
+	@Test
+	public void testArrayAccessMatchesGenericAccess() {
+		Random random = new Random(42);
+		int[] data = new int[64 * 48];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = random.nextInt(10) < 8 && i > 0 ? data[i - 1] : random.nextInt(5);
+		}
+		ArrayImg<IntType, IntArray> img = ArrayImgs.ints(data, 64, 48);
+		RandomAccess<IntType> arrayAccess = new IntTypeBoundary<>(img, -1).randomAccess();
+		RandomAccess<IntType> genericAccess = new IntTypeBoundary<>(Views.interval(img, img), -1).randomAccess();
+		for (int y = 0; y < 48; y++) {
+			for (int x = 0; x < 64; x++) {
+				arrayAccess.setPosition(new long[]{x, y});
+				genericAccess.setPosition(new long[]{x, y});
+				assertEquals(genericAccess.get().get(), arrayAccess.get().get());
+			}
+		}
+	}
+
+	@Test
+	public void testCellAccessMatchesGenericAccess() {
+		Random random = new Random(42);
+		CellImg<IntType, ?> img = new CellImgFactory<>(new IntType(), 16, 8).create(64, 48);
+		int previous = 0;
+		for (IntType value : img) {
+			previous = random.nextInt(10) < 8 ? previous : random.nextInt(5);
+			value.set(previous);
+		}
+		assertTrue(IntTypeBoundaryCellRandomAccess4.isSupported(img));
+		RandomAccess<IntType> cellAccess = new IntTypeBoundary<>(img, -1).randomAccess();
+		assertTrue(cellAccess instanceof IntTypeBoundaryCellRandomAccess4);
+		RandomAccess<IntType> genericAccess = new IntTypeBoundary<>(Views.interval(img, img), -1).randomAccess();
+		for (int y = 0; y < 48; y++) {
+			for (int x = 0; x < 64; x++) {
+				cellAccess.setPosition(new long[]{x, y});
+				genericAccess.setPosition(new long[]{x, y});
+				assertEquals(genericAccess.get().get(), cellAccess.get().get());
+			}
+		}
+		// a copy starts at the same position and reads the same cells
+		cellAccess.setPosition(new long[]{15, 7});
+		genericAccess.setPosition(new long[]{15, 7});
+		assertEquals(genericAccess.get().get(), cellAccess.copy().get().get());
+	}
+
+	@Test
+	public void testUnsignedBytes() {
+		ArrayImg<UnsignedByteType, ByteArray> img = ArrayImgs.unsignedBytes(new byte[]{
+				(byte) 200, (byte) 200, 0,
+				(byte) 200, (byte) 200, 0}, 3, 2);
+		int[] expected = {
+				0, 200, 0,
+				0, 200, 0};
+		assertTrue(IntTypeBoundaryArrayRandomAccess4.isSupported(img));
+		assertBoundary(expected, new IntTypeBoundary<>(img, -1));
+	}
+
+	@Test
+	public void testOutOfBounds() {
+		ArrayImg<IntType, IntArray> img = ArrayImgs.ints(new int[]{1, 2, 3, 4}, 2, 2);
+		RandomAccess<IntType> ra = new IntTypeBoundary<>(img, -1).randomAccess();
+		for (long[] pos : new long[][]{{-1, 0}, {2, 0}, {0, 2}, {0, -1}}) {
+			ra.setPosition(pos);
+			assertEquals(0, ra.get().get());
+		}
+	}
+
+	private void assertBoundary(int[] expected, RandomAccessibleInterval<IntType> boundary) {
+		RandomAccess<IntType> ra = boundary.randomAccess();
+		long[] dims = boundary.dimensionsAsLongArray();
+		long[] pos = new long[dims.length];
+		for (int i = 0; i < expected.length; i++) {
+			long rest = i;
+			for (int d = 0; d < dims.length; d++) {
+				pos[d] = rest % dims[d];
+				rest /= dims[d];
+			}
+			ra.setPosition(pos);
+			assertEquals("at index " + i, expected[i], ra.get().get());
+		}
+	}
+}
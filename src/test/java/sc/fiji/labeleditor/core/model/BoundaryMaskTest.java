@@ -0,0 +1,180 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.cache.img.CachedCellImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.Intervals;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BoundaryMaskTest {
+
+	@Test
+	public void testMask() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(4, 3, 2));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		// a 2 x 2 square in both planes
+		for (int z = 0; z < 2; z++) {
+			for (int x = 1; x < 3; x++) {
+				for (int y = 0; y < 2; y++) {
+					ra.setPosition(new long[]{x, y, z});
+					ra.get().add("a");
+				}
+			}
+		}
+		DefaultLabelEditorModel<String> model = new DefaultLabelEditorModel<>(labeling);
+		assertNull(model.getBoundaryMask());
+		model.setBoundaryMaskEnabled(true);
+		BoundaryMask mask = model.getBoundaryMask();
+		mask.precompute();
+		RandomAccess<BitType> maskRa = mask.getMask().randomAccess();
+		// the square continues in the second plane, the image border is not a boundary
+		assertMask(maskRa, new boolean[]{
+				false, true, true, false,
+				false, true, true, false,
+				false, false, false, false});
+
+		// grow the square of the first plane to the right
+		ra.setPosition(new long[]{3, 0, 0});
+		ra.get().add("a");
+		ra.setPosition(new long[]{3, 1, 0});
+		ra.get().add("a");
+		model.notifyLabelingListeners(Intervals.createMinMax(3, 0, 0, 3, 1, 0));
+		maskRa = mask.getMask().randomAccess();
+		assertMask(maskRa, new boolean[]{
+				false, true, false, false,
+				false, true, true, true,
+				false, false, false, false});
+	}
+
+	@Test
+	public void testBoundariesWithinPlanes() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(3, 3, 2));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		// the first plane is filled, the second plane only has its center pixel
+		for (int x = 0; x < 3; x++) {
+			for (int y = 0; y < 3; y++) {
+				ra.setPosition(new long[]{x, y, 0});
+				ra.get().add("a");
+			}
+		}
+		ra.setPosition(new long[]{1, 1, 1});
+		ra.get().add("a");
+		DefaultLabelEditorModel<String> model = new DefaultLabelEditorModel<>(labeling);
+		model.setBoundaryMaskEnabled(true);
+		RandomAccess<BitType> maskRa = model.getBoundaryMask().getMask().randomAccess();
+		// the label ending in Z does not mark the filled plane as boundary
+		for (int x = 0; x < 3; x++) {
+			for (int y = 0; y < 3; y++) {
+				maskRa.setPosition(new long[]{x, y, 0});
+				assertFalse("at " + x + ", " + y, maskRa.get().get());
+			}
+		}
+		maskRa.setPosition(new long[]{1, 1, 1});
+		assertTrue(maskRa.get().get());
+	}
+
+	@Test
+	public void testPrecomputeFlaggedIndex() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(3, 1));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{0, 0});
+		ra.get().add("a");
+		DefaultLabelEditorModel<String> model = new DefaultLabelEditorModel<>(labeling);
+		model.setBoundaryMaskEnabled(true);
+		BoundaryMask mask = model.getBoundaryMask();
+		mask.precompute();
+		CachedCellImg<?, ?> flagged = (CachedCellImg<?, ?>) mask.getFlaggedIndexImg();
+		assertNotNull(flagged.getCache().getIfPresent(0L));
+	}
+
+	@Test
+	public void testFlaggedIndex() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(3, 1));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{0, 0});
+		ra.get().add("a");
+		ra.setPosition(new long[]{1, 0});
+		ra.get().add("a");
+		ra.setPosition(new long[]{2, 0});
+		ra.get().add("b");
+		DefaultLabelEditorModel<String> model = new DefaultLabelEditorModel<>(labeling);
+		model.setBoundaryMaskEnabled(true);
+		RandomAccess<IntType> flagged = model.getBoundaryMask().getFlaggedIndexImg().randomAccess();
+		RandomAccess<IntType> index = labeling.getIndexImg().randomAccess();
+		for (int x = 0; x < 3; x++) {
+			flagged.setPosition(new long[]{x, 0});
+			index.setPosition(new long[]{x, 0});
+			int value = flagged.get().get();
+			assertEquals(index.get().get(), BoundaryMask.indexOf(value));
+			assertEquals(x > 0, BoundaryMask.isBoundary(value));
+		}
+	}
+
+	@Test
+	public void testFlaggedIndexIsCached() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(3, 1));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{0, 0});
+		ra.get().add("a");
+		DefaultLabelEditorModel<String> model = new DefaultLabelEditorModel<>(labeling);
+		model.setBoundaryMaskEnabled(true);
+		// viewers can only wrap cached images as volatile images
+		assertTrue(model.getBoundaryMask().getFlaggedIndexImg() instanceof CachedCellImg);
+		RandomAccess<IntType> flagged = model.getBoundaryMask().getFlaggedIndexImg().randomAccess();
+		flagged.setPosition(new long[]{1, 0});
+		assertEquals(0, flagged.get().get());
+
+		ra.setPosition(new long[]{1, 0});
+		ra.get().add("b");
+		model.notifyLabelingListeners(Intervals.createMinSize(1, 0, 1, 1));
+		flagged = model.getBoundaryMask().getFlaggedIndexImg().randomAccess();
+		flagged.setPosition(new long[]{1, 0});
+		assertTrue(BoundaryMask.isBoundary(flagged.get().get()));
+		assertTrue(BoundaryMask.indexOf(flagged.get().get()) > 0);
+	}
+
+	private void assertMask(RandomAccess<BitType> maskRa, boolean[] firstPlane) {
+		for (int i = 0; i < firstPlane.length; i++) {
+			maskRa.setPosition(new long[]{i % 4, i / 4, 0});
+			assertEquals("at index " + i, firstPlane[i], maskRa.get().get());
+		}
+	}
+}
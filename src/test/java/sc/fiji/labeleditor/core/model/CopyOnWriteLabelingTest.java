@@ -0,0 +1,133 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converters;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CopyOnWriteLabelingTest {
+
+	@Test
+	public void testLabelsMapToOwnLabelSet() {
+		ArrayImg<IntType, IntArray> labelMap = ArrayImgs.ints(150, 100);
+		Random random = new Random(1);
+		for (IntType pixel : labelMap) {
+			pixel.set(random.nextInt(10));
+		}
+
+		ImgLabeling<IntType, ? extends IntegerType<?>> labeling = CopyOnWriteLabeling.wrap(labelMap, new IndexCache(LabelEditorModelOptions.options()));
+		assertEquals(10, labeling.getMapping().numSets());
+
+		Cursor<IntType> cursor = labelMap.localizingCursor();
+		RandomAccess<LabelingType<IntType>> ra = labeling.randomAccess();
+		RandomAccess<? extends IntegerType<?>> index = labeling.getIndexImg().randomAccess();
+		while (cursor.hasNext()) {
+			int label = cursor.next().get();
+			ra.setPosition(cursor);
+			index.setPosition(cursor);
+			assertEquals(label, index.get().getInteger());
+			if(label == 0) {
+				assertTrue(ra.get().isEmpty());
+			} else {
+				assertEquals(1, ra.get().size());
+				assertTrue(ra.get().contains(new IntType(label)));
+			}
+		}
+	}
+
+	@Test
+	public void testEditsDoNotChangeLabelMap() {
+		ArrayImg<IntType, IntArray> labelMap = ArrayImgs.ints(new int[]{0, 1, 1, 2}, 2, 2);
+		ImgLabeling<IntType, ? extends IntegerType<?>> labeling = CopyOnWriteLabeling.wrap(labelMap, new IndexCache(LabelEditorModelOptions.options()));
+		RandomAccess<LabelingType<IntType>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{0, 0});
+		ra.get().add(new IntType(2));
+		assertTrue(ra.get().contains(new IntType(2)));
+		assertEquals(0, labelMap.firstElement().get());
+	}
+
+	@Test
+	public void testNarrowTypeUsesMaxLabel() {
+		ImgLabeling<IntType, ? extends IntegerType<?>> labeling = CopyOnWriteLabeling.wrap(
+				ArrayImgs.unsignedBytes(new byte[]{0, 1, 3, 2}, 2, 2), new IndexCache(LabelEditorModelOptions.options()));
+		// one label set per label, not per value of the type
+		assertEquals(4, labeling.getMapping().numSets());
+	}
+
+	@Test
+	public void testGivenMaxLabelIsNotRead() {
+		AtomicInteger reads = new AtomicInteger();
+		RandomAccessibleInterval<UnsignedByteType> labelMap = Converters.convert(ArrayImgs.unsignedBytes(100, 100),
+				(input, output) -> {
+					reads.incrementAndGet();
+					output.set(input);
+				}, new UnsignedByteType());
+		ImgLabeling<IntType, ? extends IntegerType<?>> labeling = CopyOnWriteLabeling.wrap(labelMap, 255, new IndexCache(LabelEditorModelOptions.options()));
+		assertEquals(256, labeling.getMapping().numSets());
+		// only the type of the label map was looked up, its cells are read when accessed
+		assertTrue(reads.get() <= 1);
+	}
+
+	@Test
+	public void testGivenMaxLabel() {
+		ArrayImg<IntType, IntArray> labelMap = ArrayImgs.ints(new int[]{0, 1, 5, 2}, 2, 2);
+		ImgLabeling<IntType, ? extends IntegerType<?>> labeling = CopyOnWriteLabeling.wrap(labelMap, 5, new IndexCache(LabelEditorModelOptions.options()));
+		assertEquals(6, labeling.getMapping().numSets());
+		RandomAccess<LabelingType<IntType>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{0, 1});
+		assertTrue(ra.get().contains(new IntType(5)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMaxLabelTooLarge() {
+		CopyOnWriteLabeling.wrap(ArrayImgs.ints(2, 2), CopyOnWriteLabeling.MAX_LABEL + 1, new IndexCache(LabelEditorModelOptions.options()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeLabels() {
+		CopyOnWriteLabeling.wrap(ArrayImgs.ints(new int[]{0, -1}, 2), new IndexCache(LabelEditorModelOptions.options()));
+	}
+}
@@ -0,0 +1,96 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.cache.img.DiskCachedCellImgOptions.CacheType;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IndexCacheTest {
+
+	@Test
+	public void testOptions() throws IOException {
+		Path directory = Files.createTempDirectory("labeleditor-test");
+		LabelEditorModelOptions options = LabelEditorModelOptions.options()
+				.cellDimensions(16, 8)
+				.cacheType(CacheType.BOUNDED)
+				.maxCacheSize(10)
+				.cacheDirectory(directory);
+		DefaultLabelEditorModel<IntType> model = DefaultLabelEditorModel.wrapLabelMap(ArrayImgs.ints(64, 64), null, options);
+		AbstractCellImg<?, ?, ?, ?> indexImg = (AbstractCellImg<?, ?, ?, ?>) model.labeling().getIndexImg();
+		assertArrayEquals(new int[]{16, 8}, new int[]{indexImg.getCellGrid().cellDimension(0), indexImg.getCellGrid().cellDimension(1)});
+		assertEquals(options, model.getIndexCache().getOptions());
+		try (Stream<Path> children = Files.list(directory)) {
+			assertEquals(1, children.count());
+		}
+	}
+
+	@Test
+	public void testLoadedCells() {
+		ArrayImg<IntType, IntArray> labelMap = ArrayImgs.ints(40, 1);
+		Cursor<IntType> cursor = labelMap.localizingCursor();
+		while(cursor.hasNext()) {
+			cursor.fwd();
+			cursor.get().set(cursor.getIntPosition(0) / 10);
+		}
+		LabelEditorModelOptions options = LabelEditorModelOptions.options().cellDimensions(10, 1);
+		DefaultLabelEditorModel<IntType> model = DefaultLabelEditorModel.wrapLabelMap(labelMap, null, options);
+		IndexCache cache = model.getIndexCache();
+		RandomAccess<LabelingType<IntType>> ra = model.labeling().randomAccess();
+		ra.setPosition(5, 0);
+		assertTrue(ra.get().isEmpty());
+		assertEquals(1, cache.getLoadedCells());
+		ra.setPosition(35, 0);
+		assertTrue(ra.get().contains(new IntType(3)));
+		assertEquals(2, cache.getLoadedCells());
+		ra.setPosition(15, 0);
+		assertTrue(ra.get().contains(new IntType(1)));
+		assertEquals(3, cache.getLoadedCells());
+		ra.setPosition(5, 0);
+		assertTrue(ra.get().isEmpty());
+		assertEquals(3, cache.getLoadedCells());
+		assertTrue(cache.getBytesOnDisk() >= 0);
+	}
+}
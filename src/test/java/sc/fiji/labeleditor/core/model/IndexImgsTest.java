@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.FinalDimensions;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.util.Util;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IndexImgsTest {
+
+	@Test
+	public void testNarrowestType() {
+		FinalDimensions dimensions = new FinalDimensions(10, 10);
+		assertTrue(Util.getTypeFromInterval(IndexImgs.createLabeling(dimensions, 256).getIndexImg()) instanceof UnsignedByteType);
+		assertTrue(Util.getTypeFromInterval(IndexImgs.createLabeling(dimensions, 257).getIndexImg()) instanceof UnsignedShortType);
+		assertTrue(Util.getTypeFromInterval(IndexImgs.createLabeling(dimensions, 1 << 16).getIndexImg()) instanceof UnsignedShortType);
+		assertTrue(Util.getTypeFromInterval(IndexImgs.createLabeling(dimensions, (1 << 16) + 1).getIndexImg()) instanceof IntType);
+		assertEquals(256, IndexImgs.getMaxNumSets(IndexImgs.createLabeling(dimensions, 2)));
+	}
+
+	@Test
+	public void testWiden() {
+		ImgLabeling<Integer, ? extends IntegerType<?>> labeling = IndexImgs.createLabeling(new FinalDimensions(300, 1), 2);
+		RandomAccess<LabelingType<Integer>> ra = labeling.randomAccess();
+		for (int i = 0; i < 255; i++) {
+			ra.setPosition(i, 0);
+			ra.get().add(i);
+		}
+		assertEquals(256, labeling.getMapping().numSets());
+
+		ImgLabeling<Integer, ? extends IntegerType<?>> widened = IndexImgs.widen(labeling, 300, new IndexCache(LabelEditorModelOptions.options().narrowIndexTypes(true)));
+		assertEquals(1 << 16, IndexImgs.getMaxNumSets(widened));
+		assertEquals(256, widened.getMapping().numSets());
+		RandomAccess<LabelingType<Integer>> widenedRA = widened.randomAccess();
+		for (int i = 0; i < 300; i++) {
+			widenedRA.setPosition(i, 0);
+			widenedRA.get().add(i);
+			assertTrue(widenedRA.get().contains(i));
+		}
+		widenedRA.setPosition(0, 0);
+		assertEquals(1, widenedRA.get().size());
+		widenedRA.setPosition(299, 0);
+		assertEquals(1, widenedRA.get().size());
+	}
+
+	@Test
+	public void testModelWidensLabeling() {
+		DefaultLabelEditorModel<IntType> model = DefaultLabelEditorModel.initFromLabelMap(ArrayImgs.ints(new int[]{0, 1, 2}, 3), null,
+				LabelEditorModelOptions.options().narrowIndexTypes(true));
+		ImgLabeling<IntType, ? extends IntegerType<?>> labeling = model.labeling();
+		assertTrue(Util.getTypeFromInterval(labeling.getIndexImg()) instanceof UnsignedByteType);
+		model.ensureIndexCapacity(256);
+		assertTrue(model.labeling() == labeling);
+		model.ensureIndexCapacity(1000);
+		assertTrue(Util.getTypeFromInterval(model.labeling().getIndexImg()) instanceof UnsignedShortType);
+		assertEquals(1, model.getLabelSetIndices(new IntType(2)).length);
+		RandomAccess<LabelingType<IntType>> ra = model.labeling().randomAccess();
+		ra.setPosition(2, 0);
+		assertTrue(ra.get().contains(new IntType(2)));
+	}
+
+	@Test
+	public void testModelsUseIntTypeByDefault() {
+		DefaultLabelEditorModel<IntType> model = DefaultLabelEditorModel.initFromLabelMap(ArrayImgs.ints(new int[]{0, 1, 2}, 3));
+		assertTrue(Util.getTypeFromInterval(model.labeling().getIndexImg()) instanceof IntType);
+		DefaultLabelEditorModel<IntType> wrapped = DefaultLabelEditorModel.wrapLabelMap(ArrayImgs.ints(new int[]{0, 1, 2}, 3));
+		assertTrue(Util.getTypeFromInterval(wrapped.labeling().getIndexImg()) instanceof IntType);
+	}
+}
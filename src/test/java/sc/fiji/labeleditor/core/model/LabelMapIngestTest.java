@@ -0,0 +1,86 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LabelMapIngestTest {
+
+	@Test
+	public void testSparseLabels() {
+		int[] ids = {1 << 30, 5, 1000000, -3};
+		ArrayImg<IntType, IntArray> labelMap = ArrayImgs.ints(200, 300);
+		Random random = new Random(1);
+		for (IntType pixel : labelMap) {
+			int choice = random.nextInt(ids.length + 1);
+			pixel.set(choice == ids.length ? 0 : ids[choice]);
+		}
+
+		LabelMapIngest ingest = LabelMapIngest.run(labelMap, new IndexCache(LabelEditorModelOptions.options()));
+		// only the present labels and the empty set are part of the mapping
+		assertEquals(ids.length, ingest.getNumLabels());
+		assertEquals(ids.length + 1, ingest.getLabeling().getMapping().numSets());
+		assertEquals(200 * 300, ingest.getNumPixels());
+		assertTrue(ingest.getPixelsPerSecond() > 0);
+
+		Cursor<IntType> cursor = labelMap.localizingCursor();
+		RandomAccess<LabelingType<IntType>> ra = ingest.getLabeling().randomAccess();
+		while (cursor.hasNext()) {
+			int label = cursor.next().get();
+			ra.setPosition(cursor);
+			if(label == 0) {
+				assertTrue(ra.get().isEmpty());
+			} else {
+				assertEquals(1, ra.get().size());
+				assertTrue(ra.get().contains(new IntType(label)));
+			}
+		}
+	}
+
+	@Test
+	public void testModelFromLabelMap() {
+		ArrayImg<IntType, IntArray> labelMap = ArrayImgs.ints(new int[]{0, 7, 7, 0, 3, 3}, 3, 2);
+		DefaultLabelEditorModel<IntType> model = DefaultLabelEditorModel.initFromLabelMap(labelMap);
+		assertEquals(3, model.labeling().getMapping().numSets());
+		assertEquals(2, model.labeling().getMapping().getLabels().size());
+		assertTrue(model.getInfo().contains("label map import"));
+	}
+}
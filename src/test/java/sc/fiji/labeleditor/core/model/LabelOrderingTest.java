@@ -0,0 +1,87 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LabelOrderingTest {
+
+	@Test
+	public void testRanksFollowOrder() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(2, 2));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{0, 0});
+		ra.get().addAll(Arrays.asList("c", "a"));
+		int first = ra.get().getIndex().getInteger();
+		ra.setPosition(new long[]{1, 0});
+		ra.get().add("b");
+
+		LabelOrdering<String> ordering = new LabelOrdering<>(labeling.getMapping(), Comparator.naturalOrder());
+		assertEquals(0, ordering.getRank("a"));
+		assertEquals(1, ordering.getRank("b"));
+		assertEquals(2, ordering.getRank("c"));
+		assertEquals(-1, ordering.getRank("x"));
+		assertEquals(Arrays.asList("a", "c"), ordering.getSortedLabels(first));
+		assertTrue(ordering.comparator().compare("c", "b") > 0);
+
+		// new labels are merged into the existing ranks
+		ra.setPosition(new long[]{0, 1});
+		ra.get().addAll(Arrays.asList("d", "ab"));
+		int index = ra.get().getIndex().getInteger();
+		assertEquals(Arrays.asList("ab", "d"), ordering.getSortedLabels(index));
+		assertEquals(0, ordering.getRank("a"));
+		assertEquals(1, ordering.getRank("ab"));
+		assertEquals(2, ordering.getRank("b"));
+		assertEquals(4, ordering.getRank("d"));
+	}
+
+	@Test
+	public void testModelSortsLabelSets() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(2, 2));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		ra.get().addAll(Arrays.asList("label2", "label10", "label1"));
+		DefaultLabelEditorModel<String> model = new DefaultLabelEditorModel<>(labeling);
+		// labels are ordered by name by default
+		assertEquals(Arrays.asList("label1", "label10", "label2"), model.getSortedLabels(ra.get().getIndex().getInteger()));
+
+		model.setLabelComparator(Comparator.comparing(String::length).thenComparing(Comparator.naturalOrder()));
+		assertEquals(Arrays.asList("label1", "label2", "label10"), model.getSortedLabels(ra.get().getIndex().getInteger()));
+	}
+}
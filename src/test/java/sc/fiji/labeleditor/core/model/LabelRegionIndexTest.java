@@ -0,0 +1,97 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LabelRegionIndexTest {
+
+	private static final int[] LABEL_MAP = {
+			1, 1, 0, 2,
+			1, 1, 0, 2,
+			0, 0, 0, 2
+	};
+
+	@Test
+	public void testRegions() {
+		DefaultLabelEditorModel<IntType> model = DefaultLabelEditorModel.initFromLabelMap(ArrayImgs.ints(LABEL_MAP, 4, 3));
+		LabelRegionIndex<IntType> index = model.getRegionIndex();
+		assertBox(index.getBoundingBox(new IntType(1)), 0, 0, 1, 1);
+		assertBox(index.getBoundingBox(new IntType(2)), 3, 0, 3, 2);
+		assertEquals(4, index.getSize(new IntType(1)));
+		assertEquals(3, index.getSize(new IntType(2)));
+		assertArrayEquals(new double[]{0.5, 0.5}, index.getCentroid(new IntType(1)), 0.0001);
+		assertArrayEquals(new double[]{3, 1}, index.getCentroid(new IntType(2)), 0.0001);
+		assertBox(index.getUnionBoundingBox(Arrays.asList(new IntType(1), new IntType(2))), 0, 0, 3, 2);
+		assertNull(index.getBoundingBox(new IntType(3)));
+		assertEquals(0, index.getSize(new IntType(3)));
+	}
+
+	@Test
+	public void testUpdate() {
+		DefaultLabelEditorModel<IntType> model = DefaultLabelEditorModel.initFromLabelMap(ArrayImgs.ints(LABEL_MAP, 4, 3));
+		LabelRegionIndex<IntType> index = model.getRegionIndex();
+		IntType label = new IntType(1);
+		Interval changed = index.getBoundingBox(label);
+		index.update(changed, () -> {
+			RandomAccess<LabelingType<IntType>> ra = model.labeling().randomAccess();
+			ra.setPosition(new long[]{1, 0});
+			ra.get().remove(label);
+			ra.setPosition(new long[]{1, 1});
+			ra.get().remove(label);
+		});
+		model.notifyLabelingListeners(changed);
+		assertEquals(2, index.getSize(label));
+		assertArrayEquals(new double[]{0, 0.5}, index.getCentroid(label), 0.0001);
+		// the bounding box is not shrunk by updates
+		assertBox(index.getBoundingBox(label), 0, 0, 1, 1);
+		assertEquals(3, index.getSize(new IntType(2)));
+
+		// unknown changes invalidate the index
+		model.notifyLabelingListeners();
+		assertBox(model.getRegionIndex().getBoundingBox(label), 0, 0, 0, 1);
+		assertEquals(2, model.getRegionIndex().getSize(label));
+	}
+
+	private static void assertBox(Interval box, long minX, long minY, long maxX, long maxY) {
+		assertArrayEquals(new long[]{minX, minY}, new long[]{box.min(0), box.min(1)});
+		assertArrayEquals(new long[]{maxX, maxY}, new long[]{box.max(0), box.max(1)});
+	}
+}
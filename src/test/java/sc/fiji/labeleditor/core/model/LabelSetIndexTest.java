@@ -0,0 +1,90 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LabelSetIndexTest {
+
+	@Test
+	public void testIndicesAreAscending() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(100, 10));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		for (int i = 0; i < 1000; i++) {
+			ra.setPosition(new long[]{i % 100, i / 100});
+			ra.get().addAll(Arrays.asList("a", "label" + i));
+		}
+		LabelingMapping<String> mapping = labeling.getMapping();
+		int[] expected = IntStream.range(0, mapping.numSets()).filter(i -> mapping.labelsAtIndex(i).contains("a")).toArray();
+		assertTrue(expected.length >= 1000);
+		LabelSetIndex<String> index = new LabelSetIndex<>(mapping);
+		assertArrayEquals(expected, index.get("a"));
+		ra.setPosition(new long[]{7, 0});
+		assertArrayEquals(new int[]{ra.get().getIndex().getInteger()}, index.get("label7"));
+		assertEquals(0, index.get("x").length);
+	}
+
+	@Test
+	public void testIncrementalUpdate() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(2, 2));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{0, 0});
+		ra.get().add("a");
+		int first = ra.get().getIndex().getInteger();
+		DefaultLabelEditorModel<String> model = new DefaultLabelEditorModel<>(labeling);
+		int[] before = model.getLabelSetIndices("a");
+		assertArrayEquals(new int[]{first}, before);
+		assertEquals(0, model.getLabelSetIndices("b").length);
+
+		ra.setPosition(new long[]{1, 0});
+		ra.get().addAll(Arrays.asList("a", "b"));
+		int second = ra.get().getIndex().getInteger();
+		ra.setPosition(new long[]{0, 1});
+		ra.get().add("b");
+		int third = ra.get().getIndex().getInteger();
+		model.notifyLabelingListeners();
+		assertArrayEquals(new int[]{first, second}, model.getLabelSetIndices("a"));
+		assertArrayEquals(new int[]{second, third}, model.getLabelSetIndices("b"));
+		// arrays handed out earlier are not changed by updates
+		assertArrayEquals(new int[]{first}, before);
+	}
+}
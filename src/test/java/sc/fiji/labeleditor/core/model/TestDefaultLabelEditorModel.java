@@ -29,7 +29,9 @@
 package sc.fiji.labeleditor.core.model;
 
 import org.junit.Ignore;
+import sc.fiji.labeleditor.core.model.tagging.BitSetLabelEditorTagging;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
+import sc.fiji.labeleditor.core.model.tagging.TagChangedEvent;
 import net.imglib2.img.array.ArrayImg;
 import net.imglib2.img.array.ArrayImgs;
 import net.imglib2.img.basictypeaccess.array.IntArray;
@@ -39,12 +41,16 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class TestDefaultLabelEditorModel {
 
@@ -70,6 +76,79 @@ public class TestDefaultLabelEditorModel {
 
 	}
 
+	@Test
+	public void testBitSetTagging() {
+		ArrayImg<IntType, IntArray> backing = ArrayImgs.ints( 10, 10 );
+		ImgLabeling< String, IntType > labels = new ImgLabeling<>( backing );
+		String LABEL1 = "label1";
+		String LABEL2 = "label2";
+
+		DefaultLabelEditorModel<String> model = new DefaultLabelEditorModel<>(labels);
+		model.setTagging(new BitSetLabelEditorTagging<>(model));
+
+		assertEquals(0, model.tagging().getTags(LABEL1).size());
+		assertEquals(0, model.tagging().getLabels(LabelEditorTag.SELECTED).size());
+
+		model.tagging().addTagToLabel(LabelEditorTag.SELECTED, LABEL1);
+		model.tagging().addTagToLabel(LabelEditorTag.MOUSE_OVER, LABEL1);
+		model.tagging().addTagToLabel(LabelEditorTag.SELECTED, LABEL2);
+		assertEquals(2, model.tagging().getTags(LABEL1).size());
+		assertEquals(2, model.tagging().getLabels(LabelEditorTag.SELECTED).size());
+		assertEquals(1, model.tagging().filterLabelsWithTag(LabelEditorTag.MOUSE_OVER).size());
+
+		model.tagging().removeTagFromLabel(LabelEditorTag.SELECTED);
+		assertEquals(0, model.tagging().getLabels(LabelEditorTag.SELECTED).size());
+		assertEquals(1, model.tagging().getTags(LABEL1).size());
+
+		model.tagging().addValueToLabel("size", 5, LABEL2);
+		assertEquals(5, model.tagging().getValue("size", LABEL2));
+		assertEquals(5, model.tagging().getDouble("size", LABEL2), 0);
+		model.tagging().addValueToLabel("size", new IntType(6), LABEL1);
+		assertEquals(new IntType(6), model.tagging().getValue("size", LABEL1));
+		model.tagging().removeTagFromLabel("size", LABEL1);
+		assertEquals(true, model.tagging().getValue(LabelEditorTag.MOUSE_OVER, LABEL1));
+		assertNull(model.tagging().getValue("size", LABEL1));
+
+		model.tagging().addValuesToLabels("area", new double[]{1.5, 2.5}, Arrays.asList(LABEL1, LABEL2));
+		assertEquals(1.5, model.tagging().getDouble("area", LABEL1), 0);
+		assertEquals(2.5, model.tagging().getDouble("area", LABEL2), 0);
+		assertTrue(model.tagging().getTags(LABEL1).contains("area"));
+		assertTrue(Double.isNaN(model.tagging().getDouble("size", LABEL1)));
+	}
+
+	@Test
+	public void testBitSetTaggingReplacesValues() {
+		ImgLabeling< String, IntType > labels = new ImgLabeling<>( ArrayImgs.ints( 10, 10 ) );
+		DefaultLabelEditorModel<String> model = new DefaultLabelEditorModel<>(labels);
+		model.setTagging(new BitSetLabelEditorTagging<>(model));
+		List<TagChangedEvent.Action> actions = new ArrayList<>();
+		model.tagging().listeners().add(events -> events.forEach(event -> actions.add(event.action)));
+
+		model.tagging().addValueToLabel("size", 5, "a");
+		model.tagging().addValueToLabel("size", "x", "a");
+		assertEquals("x", model.tagging().getValue("size", "a"));
+		assertTrue(Double.isNaN(model.tagging().getDouble("size", "a")));
+		// the tag stores ints, other numbers are kept as objects
+		model.tagging().addValueToLabel("size", 2.5, "a");
+		assertEquals(2.5, model.tagging().getValue("size", "a"));
+		assertEquals(2.5, model.tagging().getDouble("size", "a"), 0);
+		model.tagging().addValuesToLabels("size", new int[]{7}, Collections.singletonList("a"));
+		assertEquals(new IntType(7), model.tagging().getValue("size", "a"));
+		model.tagging().addValuesToLabels("size", new double[]{1.5}, Collections.singletonList("a"));
+		assertEquals(1.5, model.tagging().getDouble("size", "a"), 0);
+
+		assertEquals(Arrays.asList(TagChangedEvent.Action.ADDED, TagChangedEvent.Action.CHANGED, TagChangedEvent.Action.CHANGED,
+				TagChangedEvent.Action.CHANGED, TagChangedEvent.Action.CHANGED), actions);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBitSetTaggingValuesLength() {
+		ImgLabeling< String, IntType > labels = new ImgLabeling<>( ArrayImgs.ints( 10, 10 ) );
+		DefaultLabelEditorModel<String> model = new DefaultLabelEditorModel<>(labels);
+		model.setTagging(new BitSetLabelEditorTagging<>(model));
+		model.tagging().addValuesToLabels("area", new double[]{1.5}, Arrays.asList("label1", "label2"));
+	}
+
 	@Test
 	@Ignore // the default label comparator is not sorting labels by tags anymore but just by name, so this test fails.
 	// Not sure how to handle label ordering best, until then, this test is ignored
@@ -50,4 +50,35 @@ public class ValueColorTest {
 		assertEquals(ARGBType.rgba(255, 0, 0, 255), color.get(new IntType(100)));
 		assertEquals(ARGBType.rgba(255, 0, 0, 255), color.get(new IntType(150)));
 	}
+
+	@Test
+	public void testColormap() {
+		LabelEditorColorset colorset = new DefaultLabelEditorColorset(null);
+		LabelEditorValueColor<IntType> color = new LabelEditorValueColor<>(colorset, new IntType(0), new IntType(800));
+		colorset.put(LabelEditorTargetComponent.FACE, color);
+		color.setColormap(LabelEditorColormap.VIRIDIS);
+
+		assertEquals(LabelEditorColormap.VIRIDIS.getStop(0), color.get(new IntType(0)));
+		assertEquals(LabelEditorColormap.VIRIDIS.getStop(4), color.get(new IntType(400)));
+		assertEquals(LabelEditorColormap.VIRIDIS.getStop(8), color.get(new IntType(800)));
+		assertEquals(LabelEditorColormap.VIRIDIS.getStop(0), color.get(new IntType(-10)));
+		assertEquals(0, color.get(Double.NaN));
+
+		// setting colors replaces the colormap
+		color.setMinColor(0,0,255,255);
+		color.setMaxColor(255,0,0,255);
+		assertEquals(ARGBType.rgba(255, 0, 0, 255), color.get(new IntType(800)));
+	}
+
+	@Test
+	public void testColormapInterpolation() {
+		LabelEditorColormap colormap = new LabelEditorColormap(
+				ARGBType.rgba(0, 0, 0, 255), ARGBType.rgba(200, 0, 0, 255), ARGBType.rgba(200, 200, 0, 255));
+		assertEquals(ARGBType.rgba(100, 0, 0, 255), colormap.get(0.25f));
+		assertEquals(ARGBType.rgba(200, 100, 0, 255), colormap.get(0.75f));
+		int[] table = colormap.toTable(5);
+		assertEquals(colormap.getStop(0), table[0]);
+		assertEquals(colormap.getStop(1), table[2]);
+		assertEquals(colormap.getStop(2), table[4]);
+	}
 }
@@ -56,6 +56,8 @@ public class E05_ControlRenderers {
 	/**
 	 * By default, all renderers of annotated as plugins of type {@link LabelEditorRenderer} will be added to the viewer.
 	 * You can control this and only add specific renderers / your own renderers.
+	 * To draw faces and borders with a single renderer, call {@code panel.setFuseFacesAndBorders(true)}
+	 * before adding the model to the panel.
 	 */
 	public void run() throws IOException {
 		ImageJ ij = new ImageJ();
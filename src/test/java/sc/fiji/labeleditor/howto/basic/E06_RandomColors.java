@@ -30,6 +30,7 @@ package sc.fiji.labeleditor.howto.basic;
 
 import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.colors.LabelEditorPalette;
 import net.imagej.ImageJ;
 import net.imglib2.img.Img;
 import net.imglib2.roi.labeling.ImgLabeling;
@@ -51,14 +52,15 @@ public class E06_RandomColors {
 
 		LabelEditorModel<Integer> model = new DefaultLabelEditorModel<>(labeling, input);
 
+		// give each label its own color
+		model.colors().setPalette(LabelEditorPalette.goldenRatio(labeling.getMapping().getLabels().size(), 200));
+
+		// to pick the color of each label yourself, assign each label also as a tag to itself
+		// (this creates one tag and one colorset per label and is slow for large labelings)
 		Random random = new Random();
-		for (Integer label : labeling.getMapping().getLabels()) {
-			System.out.println(label);
-			// assign each label also as a tag to itself (so you can set colors for each label separately)
-			model.tagging().addTagToLabel(label, label);
-			// add random color to each tag
-			model.colors().getFaceColor(label).set(random.nextInt(255), random.nextInt(255), random.nextInt(255), 200);
-		}
+		Integer firstLabel = labeling.getMapping().getLabels().iterator().next();
+		model.tagging().addTagToLabel(firstLabel, firstLabel);
+		model.colors().getFaceColor(firstLabel).set(random.nextInt(255), random.nextInt(255), random.nextInt(255), 200);
 
 		model.colors().getFocusFaceColor().set(255,255,0,255);
 		model.colors().getSelectedFaceColor().set(0,255,255,255);
@@ -0,0 +1,115 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.interfaces.bdv;
+
+import bdv.viewer.SourceAndConverter;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.type.numeric.ARGBType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class IndexScreenImageCacheTest {
+
+	@Test
+	public void testHitsAndMisses() {
+		IndexScreenImageCache cache = new IndexScreenImageCache();
+		SourceAndConverter<ARGBType> source = new SourceAndConverter<>(null, null);
+		ArrayImg<ARGBType, IntArray> screenImage = ArrayImgs.argbs(10, 10);
+		screenImage.randomAccess().get().set(3);
+		AffineTransform3D transform = new AffineTransform3D();
+
+		assertNull(cache.get(cache.key(source, transform, 0, screenImage)));
+		cache.put(cache.key(source, transform, 0, screenImage), screenImage);
+		// the first projection with a key is not copied
+		assertNull(cache.get(cache.key(source, transform, 0, screenImage)));
+		cache.put(cache.key(source, transform, 0, screenImage), screenImage);
+		// the cache keeps a copy, later changes of the screen image are not visible
+		screenImage.randomAccess().get().set(5);
+		RandomAccessibleInterval<ARGBType> cached = cache.get(cache.key(source, transform, 0, screenImage));
+		assertNotNull(cached);
+		assertEquals(3, cached.randomAccess().get().get());
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+
+		// other timepoints and transforms are misses
+		assertNull(cache.get(cache.key(source, transform, 1, screenImage)));
+		AffineTransform3D scaled = new AffineTransform3D();
+		scaled.scale(2);
+		assertNull(cache.get(cache.key(source, scaled, 0, screenImage)));
+		assertEquals(4, cache.getMisses());
+	}
+
+	@Test
+	public void testMovingViewerIsNotCopied() {
+		IndexScreenImageCache cache = new IndexScreenImageCache();
+		SourceAndConverter<ARGBType> source = new SourceAndConverter<>(null, null);
+		ArrayImg<ARGBType, IntArray> screenImage = ArrayImgs.argbs(10, 10);
+		AffineTransform3D transform = new AffineTransform3D();
+		cache.put(cache.key(source, transform, 0, screenImage), screenImage);
+		cache.put(cache.key(source, transform, 0, screenImage), screenImage);
+
+		// every frame of a moving viewer has a new transform
+		for (int i = 1; i < 10; i++) {
+			AffineTransform3D moved = new AffineTransform3D();
+			moved.translate(i, 0, 0);
+			cache.put(cache.key(source, moved, 0, screenImage), screenImage);
+			assertNull(cache.get(cache.key(source, moved, 0, screenImage)));
+		}
+		// only one screen image is kept per source
+		assertNull(cache.get(cache.key(source, transform, 0, screenImage)));
+	}
+
+	@Test
+	public void testInvalidate() {
+		IndexScreenImageCache cache = new IndexScreenImageCache();
+		SourceAndConverter<ARGBType> source = new SourceAndConverter<>(null, null);
+		ArrayImg<ARGBType, IntArray> screenImage = ArrayImgs.argbs(10, 10);
+		AffineTransform3D transform = new AffineTransform3D();
+
+		cache.put(cache.key(source, transform, 0, screenImage), screenImage);
+		cache.put(cache.key(source, transform, 0, screenImage), screenImage);
+		assertNotNull(cache.get(cache.key(source, transform, 0, screenImage)));
+		cache.invalidate(source);
+		assertNull(cache.get(cache.key(source, transform, 0, screenImage)));
+
+		// screen images projected before the labeling changed are not stored
+		IndexScreenImageCache.Key key = cache.key(source, transform, 0, screenImage);
+		cache.invalidate(source);
+		cache.put(key, screenImage);
+		cache.put(key, screenImage);
+		assertNull(cache.get(cache.key(source, transform, 0, screenImage)));
+	}
+}
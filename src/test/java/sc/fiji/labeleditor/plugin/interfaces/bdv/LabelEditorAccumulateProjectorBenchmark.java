@@ -0,0 +1,179 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.interfaces.bdv;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.type.numeric.ARGBType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the previous float compositing of {@link LabelEditorAccumulateProjector}
+ * with the integer compositing. Each operation composites a screen sized image of one data source
+ * and a number of sparse labeling overlays, like a segmentation of nuclei covering a few percent of the screen.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 4, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 8, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class LabelEditorAccumulateProjectorBenchmark {
+
+	private static final int WIDTH = 1024;
+	private static final int HEIGHT = 768;
+
+	@Param({"1", "3", "8"})
+	private int labelings;
+
+	private ArrayImg<ARGBType, IntArray>[] screenImages;
+
+	@Setup
+	public void setup() {
+		screenImages = new ArrayImg[labelings + 1];
+		// gray data source
+		screenImages[0] = ArrayImgs.argbs(WIDTH, HEIGHT);
+		for (ARGBType pixel : screenImages[0]) {
+			pixel.set(ARGBType.rgba(100, 100, 100, 255));
+		}
+		// every labeling has a square label of 8 x 8 pixels in each 48 x 48 tile
+		for (int i = 1; i <= labelings; i++) {
+			screenImages[i] = ArrayImgs.argbs(WIDTH, HEIGHT);
+			Cursor<ARGBType> cursor = screenImages[i].localizingCursor();
+			int offset = i * 5;
+			while (cursor.hasNext()) {
+				cursor.fwd();
+				int x = (cursor.getIntPosition(0) + offset) % 48;
+				int y = (cursor.getIntPosition(1) + offset) % 48;
+				if(x < 8 && y < 8) cursor.get().set(ARGBType.rgba(255, 50 * i % 256, 0, 150));
+			}
+		}
+	}
+
+	@Benchmark
+	public long floatCompositing() {
+		long sum = 0;
+		Cursor<ARGBType>[] cursors = cursors();
+		while (cursors[0].hasNext()) {
+			for (Cursor<ARGBType> cursor : cursors) cursor.fwd();
+			sum += compositeFloat(cursors, 1);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long integerCompositing() {
+		long sum = 0;
+		Cursor<ARGBType>[] cursors = cursors();
+		while (cursors[0].hasNext()) {
+			for (Cursor<ARGBType> cursor : cursors) cursor.fwd();
+			sum += LabelEditorAccumulateProjector.composite(cursors, 1);
+		}
+		return sum;
+	}
+
+	private Cursor<ARGBType>[] cursors() {
+		Cursor<ARGBType>[] cursors = new Cursor[screenImages.length];
+		for (int i = 0; i < cursors.length; i++) {
+			cursors[i] = screenImages[i].cursor();
+		}
+		return cursors;
+	}
+
+	/**
+	 * The compositing as implemented before the integer path.
+	 */
+	static int compositeFloat(final Cursor<? extends ARGBType>[] accesses, final int indexFirstLabeling) {
+		int aSum = 0, rSum = 0, gSum = 0, bSum = 0;
+		for (int i = 0; i < indexFirstLabeling; i++) {
+			final int value = accesses[i].get().get();
+			aSum += ARGBType.alpha(value);
+			rSum += ARGBType.red(value);
+			gSum += ARGBType.green(value);
+			bSum += ARGBType.blue(value);
+		}
+		if (aSum > 255)
+			aSum = 255;
+		if (rSum > 255)
+			rSum = 255;
+		if (gSum > 255)
+			gSum = 255;
+		if (bSum > 255)
+			bSum = 255;
+
+		float alpha = 0, red = 0, green = 0, blue = 0;
+
+		for (int i = accesses.length - 1; i >= indexFirstLabeling; i--) {
+			final int value = accesses[i].get().get();
+			final float newalpha = ((float) ARGBType.alpha(value)) / 255.f;
+			final float newred = ARGBType.red(value);
+			final float newgreen = ARGBType.green(value);
+			final float newblue = ARGBType.blue(value);
+			if (alpha < 0.0001 && newalpha < 0.0001) continue;
+			if (newgreen + newred + newblue < 0.0001) continue;
+			red = (red * alpha + newred * newalpha * (1 - alpha)) / (alpha + newalpha * (1 - alpha));
+			green = (green * alpha + newgreen * newalpha * (1 - alpha)) / (alpha + newalpha * (1 - alpha));
+			blue = (blue * alpha + newblue * newalpha * (1 - alpha)) / (alpha + newalpha * (1 - alpha));
+			alpha = alpha + newalpha * (1 - alpha);
+		}
+
+		final float newalpha = ((float) aSum) / 255.f;
+		red = (red * alpha + (float) rSum * newalpha * (1 - alpha)) / (alpha + newalpha * (1 - alpha));
+		green = (green * alpha + (float) gSum * newalpha * (1 - alpha)) / (alpha + newalpha * (1 - alpha));
+		blue = (blue * alpha + (float) bSum * newalpha * (1 - alpha)) / (alpha + newalpha * (1 - alpha));
+		alpha = alpha + newalpha * (1 - alpha);
+
+		return ARGBType.rgba(red * alpha, green * alpha, blue * alpha, 255);
+	}
+
+	public static void main(String... args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(LabelEditorAccumulateProjectorBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.interfaces.bdv;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.ARGBType;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class LabelEditorAccumulateProjectorTest {
+
+	@Test
+	public void testUnlabeledPixelsShowData() {
+		Cursor<ARGBType>[] cursors = cursors(
+				ARGBType.rgba(100, 50, 10, 255),
+				ARGBType.rgba(20, 20, 20, 255),
+				0, 0);
+		assertEquals(ARGBType.rgba(120, 70, 30, 255), LabelEditorAccumulateProjector.composite(cursors, 2));
+	}
+
+	@Test
+	public void testOpaqueOverlayHidesData() {
+		Cursor<ARGBType>[] cursors = cursors(
+				ARGBType.rgba(100, 100, 100, 255),
+				ARGBType.rgba(0, 0, 255, 255),
+				ARGBType.rgba(255, 0, 0, 255));
+		// the last labeling is on top
+		assertEquals(ARGBType.rgba(255, 0, 0, 255), LabelEditorAccumulateProjector.composite(cursors, 1));
+	}
+
+	@Test
+	public void testMatchesFloatCompositing() {
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			int[] values = new int[2 + random.nextInt(6)];
+			for (int j = 0; j < values.length; j++) {
+				// transparent and black overlays are common and treated specially
+				int choice = random.nextInt(4);
+				values[j] = choice == 0 ? 0 : choice == 1 ? random.nextInt() & 0xff000000 : random.nextInt();
+			}
+			int indexFirstLabeling = 1 + random.nextInt(values.length - 1);
+			int expected = LabelEditorAccumulateProjectorBenchmark.compositeFloat(cursors(values), indexFirstLabeling);
+			int actual = LabelEditorAccumulateProjector.composite(cursors(values), indexFirstLabeling);
+			assertEquals(ARGBType.red(expected), ARGBType.red(actual), 1);
+			assertEquals(ARGBType.green(expected), ARGBType.green(actual), 1);
+			assertEquals(ARGBType.blue(expected), ARGBType.blue(actual), 1);
+			assertEquals(255, ARGBType.alpha(actual));
+		}
+	}
+
+	private static Cursor<ARGBType>[] cursors(int... values) {
+		Cursor<ARGBType>[] cursors = new Cursor[values.length];
+		for (int i = 0; i < values.length; i++) {
+			cursors[i] = ArrayImgs.argbs(new int[]{values[i]}, 1).cursor();
+			cursors[i].fwd();
+		}
+		return cursors;
+	}
+}
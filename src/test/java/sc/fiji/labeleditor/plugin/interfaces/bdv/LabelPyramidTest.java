@@ -0,0 +1,159 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.interfaces.bdv;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class LabelPyramidTest {
+
+	@Test
+	public void testLevels() {
+		LabelPyramid pyramid = new LabelPyramid(ArrayImgs.ints(2000, 300));
+		assertEquals(3, pyramid.numLevels());
+		assertArrayEquals(new long[]{1000, 150}, pyramid.getLevel(1).dimensionsAsLongArray());
+		assertArrayEquals(new long[]{500, 75}, pyramid.getLevel(2).dimensionsAsLongArray());
+		assertArrayEquals(new int[]{4, 4}, pyramid.getFactors(2));
+		assertEquals(1, new LabelPyramid(ArrayImgs.ints(512, 512)).numLevels());
+	}
+
+	@Test
+	public void testLabelsWinOverBackground() {
+		ArrayImg<IntType, IntArray> img = ArrayImgs.ints(1026, 1);
+		RandomAccess<IntType> ra = img.randomAccess();
+		// 1 background pixel and 1 labeled pixel
+		ra.setPosition(1, 0);
+		ra.get().set(3);
+		// 2 pixels of different labels, the first one wins
+		ra.setPosition(2, 0);
+		ra.get().set(5);
+		ra.setPosition(3, 0);
+		ra.get().set(4);
+		LabelPyramid pyramid = new LabelPyramid(img);
+		RandomAccess<? extends IntegerType<?>> level = pyramid.getLevel(1).randomAccess();
+		level.setPosition(0, 0);
+		assertEquals(3, level.get().getInteger());
+		level.setPosition(1, 0);
+		assertEquals(5, level.get().getInteger());
+		level.setPosition(2, 0);
+		assertEquals(0, level.get().getInteger());
+
+		// edits are only visible after invalidating
+		ra.setPosition(4, 0);
+		ra.get().set(7);
+		pyramid.invalidate(null);
+		level = pyramid.getLevel(1).randomAccess();
+		level.setPosition(2, 0);
+		assertEquals(7, level.get().getInteger());
+	}
+
+	@Test
+	public void testZeroMinBaseIsNotWrapped() {
+		ArrayImg<IntType, IntArray> img = ArrayImgs.ints(2000, 300);
+		assertSame(img, new LabelPyramid(img).getLevel(0));
+		LabelPyramid translated = new LabelPyramid(Views.translate(img, 10, 20));
+		assertArrayEquals(new long[]{0, 0}, Intervals.minAsLongArray(translated.getLevel(0)));
+		assertArrayEquals(new long[]{10, 20}, translated.getOffset());
+	}
+
+	@Test
+	public void testInvalidateChangedCells() {
+		ArrayImg<IntType, IntArray> img = ArrayImgs.ints(2000, 1);
+		LabelPyramid pyramid = new LabelPyramid(img);
+		RandomAccess<? extends IntegerType<?>> level = pyramid.getLevel(1).randomAccess();
+		level.setPosition(0, 0);
+		assertEquals(0, level.get().getInteger());
+		level.setPosition(900, 0);
+		assertEquals(0, level.get().getInteger());
+
+		RandomAccess<IntType> ra = img.randomAccess();
+		ra.setPosition(0, 0);
+		ra.get().set(3);
+		ra.setPosition(1800, 0);
+		ra.get().set(4);
+		int version = pyramid.getVersion();
+		pyramid.invalidate(Intervals.createMinSize(0, 0, 1, 1));
+		assertNotEquals(version, pyramid.getVersion());
+		level = pyramid.getLevel(1).randomAccess();
+		level.setPosition(0, 0);
+		assertEquals(3, level.get().getInteger());
+		// the cell of the second edit was not invalidated
+		level.setPosition(900, 0);
+		assertEquals(0, level.get().getInteger());
+	}
+
+	@Test
+	public void testTimeIsNotDownsampled() {
+		LabelPyramid pyramid = new LabelPyramid(ArrayImgs.ints(2000, 300, 5), 0, 1);
+		assertEquals(3, pyramid.numLevels());
+		assertArrayEquals(new long[]{500, 75, 5}, pyramid.getLevel(2).dimensionsAsLongArray());
+		assertArrayEquals(new int[]{4, 4, 1}, pyramid.getFactors(2));
+		assertEquals(1, new LabelPyramid(ArrayImgs.ints(512, 512, 2000), 0, 1).numLevels());
+	}
+
+	@Test
+	public void testNarrowIndexType() {
+		ArrayImg<UnsignedByteType, ?> img = ArrayImgs.unsignedBytes(1026, 1);
+		RandomAccess<UnsignedByteType> ra = img.randomAccess();
+		ra.setPosition(3, 0);
+		ra.get().set(200);
+		LabelPyramid pyramid = new LabelPyramid(img);
+		RandomAccess<? extends IntegerType<?>> level = pyramid.getLevel(1).randomAccess();
+		level.setPosition(1, 0);
+		assertEquals(200, level.get().getInteger());
+	}
+
+	@Test
+	public void testSourceConvertsLevelsOnce() {
+		LabelPyramid pyramid = new LabelPyramid(ArrayImgs.ints(2000, 300));
+		LabelPyramidSource<ARGBType> source = LabelPyramidSource.create(pyramid, "labels");
+		assertEquals(3, source.getNumMipmapLevels());
+		RandomAccessibleInterval<ARGBType> level = source.getSource(0, 1);
+		assertEquals(3, level.numDimensions());
+		assertSame(level, source.getSource(0, 1));
+		pyramid.invalidate(Intervals.createMinSize(0, 0, 1, 1));
+		assertNotSame(level, source.getSource(0, 1));
+	}
+}
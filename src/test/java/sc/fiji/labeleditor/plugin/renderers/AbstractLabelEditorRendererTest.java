@@ -34,17 +34,20 @@ import net.imagej.axis.AxisType;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converters;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImg;
 import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.img.array.ArrayImgs;
 import net.imglib2.img.basictypeaccess.array.IntArray;
 import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingMapping;
 import net.imglib2.roi.labeling.LabelingType;
 import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.view.Views;
 import org.junit.Before;
 import org.junit.Test;
 import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
@@ -57,11 +60,17 @@ import sc.fiji.labeleditor.core.view.LabelEditorTargetComponent;
 import sc.fiji.labeleditor.core.view.LabelEditorView;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Stream;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class AbstractLabelEditorRendererTest<T extends RealType<T> & NativeType<T>> {
 
@@ -210,6 +219,209 @@ public class AbstractLabelEditorRendererTest<T extends RealType<T> & NativeType<
 	}
 
 
+	@Test
+	public void testTagChangeUpdatesAffectedLabelSets() {
+		RandomAccess<LabelingType<String>> ra = labels.randomAccess();
+		ra.setPosition(new long[]{0,0});
+		ra.get().add("a");
+		ra.setPosition(new long[]{0,1});
+		ra.get().add("b");
+		ra.setPosition(new long[]{1,0});
+		ra.get().add("a");
+		ra.get().add("b");
+		LabelEditorModel<String> model = new DefaultLabelEditorModel<>(labels);
+		int red = ARGBType.rgba(255, 0, 0, 255);
+		int green = ARGBType.rgba(0, 255, 0, 255);
+		model.colors().getFaceColor("b").set(red);
+		model.colors().getDefaultFaceColor().set(green);
+
+		LabelEditorView<String> view = new DefaultLabelEditorView<>(model);
+		DefaultLabelEditorRenderer<String> renderer = new DefaultLabelEditorRenderer<>();
+		view.add(renderer);
+		renderer.init(model);
+		renderer.updateScreenImage(model.labeling().getIndexImg());
+		RandomAccess<ARGBType> outRa = renderer.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		outRa.setPosition(new long[]{0,1}); // labels {b}
+		assertEquals(green, outRa.get().get());
+		long version = renderer.getVersion();
+
+		model.tagging().addTagToLabel("b", "b");
+		assertTrue(renderer.getVersion() > version);
+		// an output which was already handed out keeps its colors
+		assertEquals(green, outRa.get().get());
+		outRa = renderer.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		outRa.setPosition(new long[]{0,0}); // labels {a}
+		assertEquals(green, outRa.get().get());
+		outRa.setPosition(new long[]{0,1}); // labels {b}
+		assertEquals(red, outRa.get().get());
+
+		model.tagging().removeTagFromLabel("b", "b");
+		outRa = renderer.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		outRa.setPosition(new long[]{0,1}); // labels {b}
+		assertEquals(green, outRa.get().get());
+
+		// tags without colors do not change the LUT
+		version = renderer.getVersion();
+		model.tagging().addTagToLabel("uncolored", "a");
+		assertEquals(version, renderer.getVersion());
+	}
+
+	@Test
+	public void testColorChangeUpdatesCachedColors() {
+		RandomAccess<LabelingType<String>> ra = labels.randomAccess();
+		ra.setPosition(new long[]{0,0});
+		ra.get().add("a");
+		ra.setPosition(new long[]{0,1});
+		ra.get().add("b");
+		LabelEditorModel<String> model = new DefaultLabelEditorModel<>(labels);
+		model.tagging().addTagToLabel("t", "a");
+		model.tagging().addTagToLabel("t", "b");
+		int red = ARGBType.rgba(255, 0, 0, 255);
+		int blue = ARGBType.rgba(0, 0, 255, 255);
+		model.colors().getFaceColor("t").set(red);
+
+		LabelEditorView<String> view = new DefaultLabelEditorView<>(model);
+		DefaultLabelEditorRenderer<String> renderer = new DefaultLabelEditorRenderer<>();
+		view.add(renderer);
+		renderer.init(model);
+		renderer.updateScreenImage(model.labeling().getIndexImg());
+		RandomAccess<ARGBType> outRa = renderer.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		outRa.setPosition(new long[]{0,0});
+		assertEquals(red, outRa.get().get());
+		outRa.setPosition(new long[]{0,1});
+		assertEquals(red, outRa.get().get());
+
+		model.colors().getFaceColor("t").set(blue);
+		outRa = renderer.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		outRa.setPosition(new long[]{0,0});
+		assertEquals(blue, outRa.get().get());
+		outRa.setPosition(new long[]{0,1});
+		assertEquals(blue, outRa.get().get());
+	}
+
+	/**
+	 * Same setup as E01_AddToExistingBDV: the renderer gets initialized with an ARGB screen image
+	 * of the index image, afterwards label sets get added to the labeling.
+	 */
+	@Test
+	public void testLabelSetsAddedAfterInit() {
+		RandomAccess<LabelingType<String>> ra = labels.randomAccess();
+		ra.setPosition(new long[]{0,0});
+		ra.get().add("a");
+		LabelEditorModel<String> model = new DefaultLabelEditorModel<>(labels);
+		int yellow = ARGBType.rgba(255, 255, 0, 55);
+		model.colors().getDefaultFaceColor().set(yellow);
+
+		LabelEditorView<String> view = new DefaultLabelEditorView<>(model);
+		DefaultLabelEditorRenderer<String> renderer = new DefaultLabelEditorRenderer<>();
+		view.add(renderer);
+		RandomAccessibleInterval<ARGBType> screenImg = Converters.convert(
+				labels.getIndexImg(),
+				(input, output) -> output.set(input.getInteger()), new ARGBType());
+		renderer.init(model, screenImg);
+		RandomAccess<ARGBType> outRa = renderer.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		outRa.setPosition(new long[]{0,0});
+		assertEquals(yellow, outRa.get().get());
+
+		ra.setPosition(new long[]{1,1});
+		ra.get().add("b");
+
+		// the new label sets are not part of the LUT bound to the old output
+		outRa.setPosition(new long[]{1,1});
+		assertEquals(0, outRa.get().get());
+
+		// painting does not update the LUT, new label sets are transparent until the labeling listeners are notified
+		outRa = renderer.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		outRa.setPosition(new long[]{1,1});
+		assertEquals(0, outRa.get().get());
+
+		ra.setPosition(new long[]{1,0});
+		ra.get().add("c");
+		model.notifyLabelingListeners();
+		assertEquals(model.labeling().getMapping().numSets(), renderer.getLUT().length);
+		outRa = renderer.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		outRa.setPosition(new long[]{1,1});
+		assertEquals(yellow, outRa.get().get());
+		outRa.setPosition(new long[]{1,0});
+		assertEquals(yellow, outRa.get().get());
+	}
+
+	@Test
+	public void testParallelLUTMatchesSequential() {
+		// overlapping label sets, more than needed to build the LUT in parallel
+		int numSets = AbstractLabelEditorRenderer.PARALLEL_THRESHOLD * 2 + 123;
+		List<Set<String>> labelSets = new ArrayList<>();
+		labelSets.add(new HashSet<>());
+		for (int i = 1; i < numSets; i++) {
+			labelSets.add(new HashSet<>(Arrays.asList("l" + i, "l" + (i / 3), "l" + (i % 7))));
+		}
+		new LabelingMapping.SerialisationAccess<String>(labels.getMapping()) {
+			{
+				super.setLabelSets(labelSets);
+			}
+		};
+		LabelEditorModel<String> model = new DefaultLabelEditorModel<>(labels);
+		model.colors().getDefaultFaceColor().set(ARGBType.rgba(255, 255, 0, 55));
+		for (int i = 0; i < 5; i++) {
+			model.colors().getFaceColor("t" + i).set(ARGBType.rgba(50 * i, 255 - 50 * i, 100, 40 + 40 * i));
+		}
+		for (int i = 0; i < numSets; i += 2) {
+			model.tagging().addTagToLabel("t" + (i % 5), "l" + i);
+		}
+
+		DefaultLabelEditorRenderer<String> renderer = new DefaultLabelEditorRenderer<>();
+		renderer.init(model);
+		int[] lut = renderer.getLUT();
+		assertEquals(numSets, lut.length);
+
+		int[] expected = new int[numSets];
+		renderer.fillLUT(expected, 0, numSets, model.colors(), LabelEditorTargetComponent.FACE,
+				model.labeling().getMapping(), new AbstractLabelEditorRenderer.ColorBuffers());
+		assertArrayEquals(expected, lut);
+	}
+
+	@Test
+	public void testNewScreenImageKeepsLUT() {
+		RandomAccess<LabelingType<String>> ra = labels.randomAccess();
+		ra.setPosition(new long[]{1,1});
+		ra.get().add("a");
+		LabelEditorModel<String> model = new DefaultLabelEditorModel<>(labels);
+		int red = ARGBType.rgba(255, 0, 0, 255);
+		int green = ARGBType.rgba(0, 255, 0, 255);
+		model.colors().getFaceColor("a").set(red);
+		model.colors().getDefaultFaceColor().set(green);
+
+		LabelEditorView<String> view = new DefaultLabelEditorView<>(model);
+		DefaultLabelEditorRenderer<String> renderer = new DefaultLabelEditorRenderer<>();
+		view.add(renderer);
+		renderer.init(model, Converters.convert(labels.getIndexImg(),
+				(input, output) -> output.set(input.getInteger()), new ARGBType()));
+		int[] lut = renderer.getLUT();
+		long version = renderer.getVersion();
+		RandomAccess<ARGBType> outRa = renderer.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		outRa.setPosition(new long[]{0,0});
+		assertEquals(0, outRa.get().get());
+
+		// screen image of a panned view, showing label a at the origin
+		RandomAccessibleInterval<ARGBType> panned = Converters.convert(Views.zeroMin(Views.interval(labels.getIndexImg(), new long[]{1,1}, new long[]{1,1})),
+				(input, output) -> output.set(input.getInteger()), new ARGBType());
+		renderer.setScreenImage(panned);
+		assertSame(lut, renderer.getLUT());
+		assertEquals(version, renderer.getVersion());
+
+		outRa = renderer.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		outRa.setPosition(new long[]{0,0});
+		assertEquals(green, outRa.get().get());
+
+		// inactive renderers do not follow tag changes, they catch up when reactivated
+		view.setActive(renderer, false);
+		model.tagging().addTagToLabel("a", "a");
+		view.setActive(renderer, true);
+		outRa = renderer.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		outRa.setPosition(new long[]{0,0});
+		assertEquals(red, outRa.get().get());
+	}
+
 	private void printColor(ARGBType argbType) {
 		System.out.println(ARGBType.red(argbType.get()) + ", " + ARGBType.green(argbType.get()) + ", " + ARGBType.blue(argbType.get()) + ", " + ARGBType.alpha(argbType.get()));
 	}
@@ -0,0 +1,103 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.renderers;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converters;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.roi.boundary.IntTypeBoundary;
+import net.imglib2.roi.boundary.IntTypeBoundaryArrayRandomAccess4;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.view.Views;
+import org.junit.Test;
+import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelEditorModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BorderLabelEditorRendererTest {
+
+	@Test
+	public void testArrayScreenImage() {
+		ImgLabeling<String, IntType> labels = new ImgLabeling<>(ArrayImgs.ints(6, 6));
+		RandomAccess<LabelingType<String>> ra = labels.randomAccess();
+		for (int x = 0; x < 4; x++) {
+			for (int y = 0; y < 4; y++) {
+				ra.setPosition(new long[]{x, y});
+				ra.get().add("a");
+			}
+		}
+		LabelEditorModel<String> model = new DefaultLabelEditorModel<>(labels);
+		model.colors().getDefaultBorderColor().set(0, 0, 255, 200);
+
+		// the screen images of BDV are ARGB array images holding the projected indices
+		ArrayImg<ARGBType, IntArray> screenImage = ArrayImgs.argbs(6, 6);
+		RandomAccess<ARGBType> screenRa = screenImage.randomAccess();
+		RandomAccess<IntType> indexRa = labels.getIndexImg().randomAccess();
+		for (int x = 0; x < 6; x++) {
+			for (int y = 0; y < 6; y++) {
+				indexRa.setPosition(new long[]{x, y});
+				screenRa.setPosition(indexRa);
+				screenRa.get().set(indexRa.get().get());
+			}
+		}
+
+		BorderLabelEditorRenderer<String> arrayBorders = new BorderLabelEditorRenderer<>();
+		arrayBorders.init(model, screenImage);
+		RandomAccessibleInterval<?> boundary = arrayBorders.getScreenImage();
+		assertTrue(boundary instanceof IntTypeBoundary);
+		assertTrue(((IntTypeBoundary<?>) boundary).randomAccess() instanceof IntTypeBoundaryArrayRandomAccess4);
+
+		BorderLabelEditorRenderer<String> viewBorders = new BorderLabelEditorRenderer<>();
+		viewBorders.init(model, Converters.convert(Views.interval(screenImage, screenImage),
+				(input, output) -> output.set(input.get()), new ARGBType()));
+
+		RandomAccess<ARGBType> arrayOut = arrayBorders.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		RandomAccess<ARGBType> viewOut = viewBorders.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		int borderPixels = 0;
+		for (int x = 0; x < 6; x++) {
+			for (int y = 0; y < 6; y++) {
+				long[] pos = {x, y};
+				arrayOut.setPosition(pos);
+				viewOut.setPosition(pos);
+				assertEquals("at " + x + ", " + y, viewOut.get().get(), arrayOut.get().get());
+				if(arrayOut.get().get() != 0) borderPixels++;
+			}
+		}
+		// the right and bottom edge of the label
+		assertEquals(7, borderPixels);
+	}
+}
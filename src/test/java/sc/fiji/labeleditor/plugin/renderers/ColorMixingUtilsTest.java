@@ -0,0 +1,86 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.renderers;
+
+import net.imglib2.type.numeric.ARGBType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ColorMixingUtilsTest {
+
+	@Test
+	public void testOverlay() {
+		int red = ARGBType.rgba(255, 0, 0, 255);
+		int blue = ARGBType.rgba(0, 0, 255, 255);
+		int halfBlue = ARGBType.rgba(0, 0, 255, 128);
+		assertEquals(0, ColorMixingUtils.mixOverlay(new int[]{0, 0}, 2));
+		assertEquals(red, ColorMixingUtils.mixOverlay(new int[]{0, red, blue}, 3));
+		assertEquals(ARGBType.rgba(0, 0, 255, 191), ColorMixingUtils.mixOverlay(new int[]{halfBlue, halfBlue}, 2));
+		// only the first count colors are mixed
+		assertEquals(halfBlue, ColorMixingUtils.mixOverlay(new int[]{halfBlue, red}, 1));
+	}
+
+	@Test
+	public void testAdditive() {
+		int red = ARGBType.rgba(255, 0, 0, 255);
+		int blue = ARGBType.rgba(0, 0, 255, 255);
+		assertEquals(0, ColorMixingUtils.mixAdditive(new int[]{0, 0}, 2));
+		assertEquals(ARGBType.rgba(255, 0, 255, 255), ColorMixingUtils.mixAdditive(new int[]{red, 0, blue}, 3));
+		assertEquals(ARGBType.rgba(255, 0, 0, 255), ColorMixingUtils.mixAdditive(new int[]{red, red}, 2));
+		assertEquals(red, ColorMixingUtils.mixAdditive(new int[]{red, blue}, 1));
+	}
+
+	@Test
+	public void testMatchesStreamMixing() {
+		// the integer kernels truncate intermediate results at other points than the previous float math
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			int[] colors = new int[1 + random.nextInt(8)];
+			for (int j = 0; j < colors.length; j++) {
+				colors[j] = random.nextInt(10) == 0 ? 0 : ARGBType.rgba(random.nextInt(256), random.nextInt(256), random.nextInt(256), random.nextInt(256));
+			}
+			assertClose(ColorMixingBenchmark.StreamColorMixing.mixColorsOverlay(Arrays.stream(colors).boxed()),
+					ColorMixingUtils.mixOverlay(colors, colors.length), 2);
+			assertClose(ColorMixingBenchmark.StreamColorMixing.mixColorsAdditive(Arrays.stream(colors).boxed()),
+					ColorMixingUtils.mixAdditive(colors, colors.length), 1);
+		}
+	}
+
+	private static void assertClose(int expected, int actual, int tolerance) {
+		assertTrue(Math.abs(ARGBType.red(expected) - ARGBType.red(actual)) <= tolerance);
+		assertTrue(Math.abs(ARGBType.green(expected) - ARGBType.green(actual)) <= tolerance);
+		assertTrue(Math.abs(ARGBType.blue(expected) - ARGBType.blue(actual)) <= tolerance);
+		assertTrue(Math.abs(ARGBType.alpha(expected) - ARGBType.alpha(actual)) <= tolerance);
+	}
+}
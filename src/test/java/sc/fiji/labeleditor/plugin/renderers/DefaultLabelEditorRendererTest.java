@@ -49,6 +49,8 @@ import org.junit.Before;
 import org.junit.Test;
 import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.colors.LabelEditorPalette;
+import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
 import sc.fiji.labeleditor.core.view.DefaultLabelEditorView;
 import sc.fiji.labeleditor.core.view.LabelEditorRenderer;
 import sc.fiji.labeleditor.core.view.LabelEditorView;
@@ -204,6 +206,55 @@ public class DefaultLabelEditorRendererTest<T extends RealType<T> & NativeType<T
 		assertEquals(0, outRa.get().get());
 	}
 
+	@Test
+	public void testPaletteRendering() {
+		RandomAccess<LabelingType<String>> ra = labels.randomAccess();
+		// label b appears first and gets the lower ordinal
+		ra.setPosition(new long[]{0,1});
+		ra.get().add("b");
+		ra.setPosition(new long[]{0,0});
+		ra.get().add("c");
+
+		DefaultLabelEditorModel<String> model = new DefaultLabelEditorModel<>(labels);
+		int red = ARGBType.rgba(255, 0, 0, 255);
+		int blue = ARGBType.rgba(0, 0, 255, 255);
+		int green = ARGBType.rgba(0, 255, 0, 255);
+		int white = ARGBType.rgba(255, 255, 255, 255);
+		// the palette is indexed by label ordinal, b before c
+		assertEquals(0, model.getLabelOrdinal("b"));
+		assertEquals(1, model.getLabelOrdinal("c"));
+		model.colors().setPalette(new LabelEditorPalette(new int[]{red, blue, white}, new int[]{blue, red, white}));
+		model.colors().getSelectedFaceColor().set(green);
+		model.tagging().addTagToLabel(LabelEditorTag.SELECTED, "b");
+
+		LabelEditorView<String> view = new DefaultLabelEditorView<>(model);
+		DefaultLabelEditorRenderer<String> renderer = new DefaultLabelEditorRenderer<>();
+		view.add(renderer);
+		renderer.init(model);
+		renderer.updateScreenImage(model.labeling().getIndexImg());
+		RandomAccess<ARGBType> outRa = renderer.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		outRa.setPosition(new long[]{0,0}); // labels {c}
+		assertEquals(blue, outRa.get().get());
+		outRa.setPosition(new long[]{0,1}); // labels {b}, selected
+		assertEquals(green, outRa.get().get());
+		outRa.setPosition(new long[]{1,1}); // labels {}
+		assertEquals(0, outRa.get().get());
+
+		// a label sorting before the others shifts their ranks, but not their colors
+		ra.setPosition(new long[]{1,0});
+		ra.get().add("a");
+		model.notifyLabelingListeners();
+		assertEquals(0, model.getLabelRank("a"));
+		assertEquals(2, model.getLabelRank("c"));
+		assertEquals(2, model.getLabelOrdinal("a"));
+		assertEquals(1, model.getLabelOrdinal("c"));
+		renderer.updateScreenImage(model.labeling().getIndexImg());
+		outRa = renderer.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		outRa.setPosition(new long[]{0,0}); // labels {c}
+		assertEquals(blue, outRa.get().get());
+		outRa.setPosition(new long[]{1,0}); // labels {a}
+		assertEquals(white, outRa.get().get());
+	}
 
 	private void printColor(ARGBType argbType) {
 		System.out.println(ARGBType.red(argbType.get()) + ", " + ARGBType.green(argbType.get()) + ", " + ARGBType.blue(argbType.get()) + ", " + ARGBType.alpha(argbType.get()));
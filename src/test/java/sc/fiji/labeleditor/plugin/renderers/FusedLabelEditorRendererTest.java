@@ -0,0 +1,154 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.renderers;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converters;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Test;
+import org.scijava.Context;
+import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.view.DefaultLabelEditorView;
+import sc.fiji.labeleditor.core.view.LabelEditorView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FusedLabelEditorRendererTest {
+
+	@Test
+	public void testSameAsFacesAndBorders() {
+		ImgLabeling<String, IntType> labels = new ImgLabeling<>(ArrayImgs.ints(6, 6));
+		RandomAccess<LabelingType<String>> ra = labels.randomAccess();
+		for (int x = 0; x < 6; x++) {
+			for (int y = 0; y < 6; y++) {
+				ra.setPosition(new long[]{x, y});
+				if(x < 4 && y < 4) ra.get().add("a");
+				if(x > 1 && y > 1) ra.get().add("b");
+			}
+		}
+		LabelEditorModel<String> model = new DefaultLabelEditorModel<>(labels);
+		model.tagging().addTagToLabel("selected", "b");
+		model.colors().getDefaultFaceColor().set(255, 255, 0, 55);
+		model.colors().getDefaultBorderColor().set(0, 0, 255, 200);
+		model.colors().getFaceColor("selected").set(255, 0, 0, 100);
+
+		LabelEditorView<String> view = new DefaultLabelEditorView<>(model);
+		DefaultLabelEditorRenderer<String> faces = new DefaultLabelEditorRenderer<>();
+		BorderLabelEditorRenderer<String> borders = new BorderLabelEditorRenderer<>();
+		FusedLabelEditorRenderer<String> fused = new FusedLabelEditorRenderer<>();
+		view.add(faces);
+		view.add(borders);
+		view.add(fused);
+		faces.init(model);
+		faces.updateScreenImage(labels.getIndexImg());
+		borders.init(model);
+		borders.updateScreenImage(labels.getIndexImg());
+		fused.init(model, Converters.convert(labels.getIndexImg(),
+				(input, output) -> output.set(input.getInteger()), new ARGBType()));
+
+		assertSameAsFacesAndBorders(faces, borders, fused);
+
+		long version = fused.getVersion();
+		model.tagging().addTagToLabel("selected", "a");
+		assertTrue(fused.getVersion() > version);
+		assertSameAsFacesAndBorders(faces, borders, fused);
+	}
+
+	@Test
+	public void testArrayScreenImage() {
+		ImgLabeling<String, IntType> labels = new ImgLabeling<>(ArrayImgs.ints(6, 6));
+		RandomAccess<LabelingType<String>> ra = labels.randomAccess();
+		for (int x = 0; x < 6; x++) {
+			for (int y = 0; y < 6; y++) {
+				ra.setPosition(new long[]{x, y});
+				if(x < 4 && y < 4) ra.get().add("a");
+				if(x > 1 && y > 1) ra.get().add("b");
+			}
+		}
+		LabelEditorModel<String> model = new DefaultLabelEditorModel<>(labels);
+		model.colors().getDefaultFaceColor().set(255, 255, 0, 55);
+		model.colors().getDefaultBorderColor().set(0, 0, 255, 200);
+
+		// BDV projects the index image into an ARGB array image
+		ArrayImg<ARGBType, IntArray> screenImage = ArrayImgs.argbs(6, 6);
+		LoopBuilder.setImages(labels.getIndexImg(), screenImage).forEachPixel((index, argb) -> argb.set(index.get()));
+
+		DefaultLabelEditorRenderer<String> faces = new DefaultLabelEditorRenderer<>();
+		BorderLabelEditorRenderer<String> borders = new BorderLabelEditorRenderer<>();
+		FusedLabelEditorRenderer<String> fused = new FusedLabelEditorRenderer<>();
+		faces.init(model, screenImage);
+		borders.init(model, screenImage);
+		fused.init(model, screenImage);
+		assertSameAsFacesAndBorders(faces, borders, fused);
+	}
+
+	@Test
+	public void testFusedDefaultRenderers() {
+		LabelEditorModel<String> model = new DefaultLabelEditorModel<>(new ImgLabeling<>(ArrayImgs.ints(6, 6)));
+		LabelEditorView<String> view = new DefaultLabelEditorView<>(model);
+		view.setFuseFacesAndBorders(true);
+		view.addDefaultRenderers();
+		assertEquals(1, view.renderers().size());
+		assertTrue(view.renderers().get(0) instanceof FusedLabelEditorRenderer);
+
+		DefaultLabelEditorView<String> pluginView = new DefaultLabelEditorView<>(model);
+		new Context().inject(pluginView);
+		pluginView.setFuseFacesAndBorders(true);
+		pluginView.addDefaultRenderers();
+		assertEquals(1, pluginView.renderers().stream().filter(r -> r instanceof FusedLabelEditorRenderer).count());
+		assertFalse(pluginView.renderers().stream().anyMatch(r -> r instanceof DefaultLabelEditorRenderer || r instanceof BorderLabelEditorRenderer));
+	}
+
+	private void assertSameAsFacesAndBorders(DefaultLabelEditorRenderer<String> faces, BorderLabelEditorRenderer<String> borders, FusedLabelEditorRenderer<String> fused) {
+		RandomAccess<ARGBType> faceRa = faces.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		RandomAccess<ARGBType> borderRa = borders.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		RandomAccess<ARGBType> fusedRa = fused.<RandomAccessibleInterval<ARGBType>>getOutput().randomAccess();
+		for (int x = 0; x < 6; x++) {
+			for (int y = 0; y < 6; y++) {
+				long[] pos = {x, y};
+				faceRa.setPosition(pos);
+				borderRa.setPosition(pos);
+				fusedRa.setPosition(pos);
+				int expected = ColorMixingUtils.mixOverlay(new int[]{borderRa.get().get(), faceRa.get().get()}, 2);
+				assertEquals("at " + x + ", " + y, expected, fusedRa.get().get());
+			}
+		}
+	}
+}
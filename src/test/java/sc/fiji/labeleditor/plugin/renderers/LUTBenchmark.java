@@ -0,0 +1,134 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2023 Deborah Schmidt
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.renderers;
+
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.real.DoubleType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.view.LabelEditorTargetComponent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building a large LUT in one thread with building it in parallel ranges.
+ * All ranges read the tags and values of the labels, the parallel build is only faster
+ * if the tagging does not serialize these reads.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 4, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 8, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class LUTBenchmark {
+
+	@Param({"100000", "1000000"})
+	private int numSets;
+
+	private LabelEditorModel<String> model;
+	private DefaultLabelEditorRenderer<String> renderer;
+	private int[] lut;
+
+	@Setup
+	public void setup() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(1, 1));
+		List<Set<String>> labelSets = new ArrayList<>();
+		labelSets.add(Collections.emptySet());
+		for (int i = 1; i < numSets; i++) {
+			labelSets.add(new HashSet<>(Arrays.asList("l" + i, "l" + (i % 7))));
+		}
+		new LabelingMapping.SerialisationAccess<String>(labeling.getMapping()) {
+			{
+				super.setLabelSets(labelSets);
+			}
+		};
+		model = new DefaultLabelEditorModel<>(labeling);
+		model.colors().makeValueFaceColor("size", new DoubleType(0), new DoubleType(numSets));
+		for (int i = 0; i < 5; i++) {
+			model.colors().getFaceColor("t" + i).set(ARGBType.rgba(50 * i, 255 - 50 * i, 100, 40 + 40 * i));
+		}
+		List<String> labels = new ArrayList<>();
+		double[] sizes = new double[numSets];
+		for (int i = 0; i < numSets; i++) {
+			labels.add("l" + i);
+			sizes[i] = i;
+			model.tagging().addTagToLabel("t" + (i % 5), "l" + i);
+		}
+		model.tagging().addValuesToLabels("size", sizes, labels);
+		renderer = new DefaultLabelEditorRenderer<>();
+		renderer.init(model);
+		lut = new int[numSets];
+	}
+
+	@Benchmark
+	public int[] sequential() {
+		renderer.fillLUT(lut, 0, lut.length, model.colors(), LabelEditorTargetComponent.FACE,
+				model.labeling().getMapping(), new AbstractLabelEditorRenderer.ColorBuffers());
+		return lut;
+	}
+
+	@Benchmark
+	public int[] parallel() {
+		renderer.fillLUT(lut, 0, model.colors(), LabelEditorTargetComponent.FACE, model.labeling().getMapping());
+		return lut;
+	}
+
+	public static void main(String... args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(LUTBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}